@@ -0,0 +1,189 @@
+package info.loenwind.autosave.benchmark;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+
+import info.loenwind.autosave.annotations.Storable;
+import info.loenwind.autosave.annotations.Store;
+
+/**
+ * The objects that are (re-)stored by the benchmarks. Each shape mirrors a kind of object that is common in mods.
+ * <p>
+ * Note: The Minecraft {@link net.minecraft.init.Bootstrap} must have been run before {@link Shape#fill()} is called.
+ */
+public final class Shapes {
+
+    private Shapes() {}
+
+    public abstract static class Shape {
+
+        /**
+         * Fills all fields with data and returns this.
+         */
+        public abstract Shape fill();
+    }
+
+    /**
+     * A tile entity with lots of primitive counters.
+     */
+    public static class Primitives extends Shape {
+
+        public @Store boolean active;
+        public @Store boolean redstone;
+        public @Store byte mode;
+        public @Store short progress;
+        public @Store char symbol;
+        public @Store int energy;
+        public @Store int maxEnergy;
+        public @Store int ticks;
+        public @Store int cooldown;
+        public @Store int tier;
+        public @Store int fluidAmount;
+        public @Store long lastTick;
+        public @Store long worldTime;
+        public @Store float efficiency;
+        public @Store float speed;
+        public @Store double experience;
+
+        @Override
+        public Primitives fill() {
+            active = true;
+            redstone = true;
+            mode = 3;
+            progress = 1234;
+            symbol = 'x';
+            energy = 500000;
+            maxEnergy = 1000000;
+            ticks = 42;
+            cooldown = 20;
+            tier = 2;
+            fluidAmount = 8000;
+            lastTick = 123456789L;
+            worldTime = 987654321L;
+            efficiency = 0.75F;
+            speed = 1.5F;
+            experience = 12.5D;
+            return this;
+        }
+    }
+
+    /**
+     * A machine with an inventory, both as an array and as a list.
+     */
+    public static class Machine extends Shape {
+
+        public @Store BlockPos pos;
+        public @Store ItemStack[] inventory;
+        public @Store List<ItemStack> output;
+        public @Store int energy;
+
+        @Override
+        public Machine fill() {
+            pos = new BlockPos(867, 5, 309);
+            inventory = new ItemStack[27];
+            for (int i = 0; i < inventory.length; i++) {
+                // A mix of empty slots, full stacks and damaged items
+                inventory[i] = i % 3 == 0 ? ItemStack.EMPTY :
+                        i % 3 == 1 ? new ItemStack(Items.IRON_INGOT, 64) : new ItemStack(Items.DIAMOND_PICKAXE, 1, i);
+            }
+            output = new ArrayList<>();
+            for (int i = 0; i < 9; i++) {
+                output.add(new ItemStack(Items.GOLD_INGOT, i + 1));
+            }
+            energy = 100000;
+            return this;
+        }
+    }
+
+    @Storable
+    public static class Node {
+
+        public @Store int value;
+        public @Store String name = "";
+        public @Store List<Node> children = new ArrayList<>();
+    }
+
+    /**
+     * A tree of nested {@link Storable} objects.
+     */
+    public static class Nested extends Shape {
+
+        private static final int DEPTH = 4;
+        private static final int FANOUT = 3;
+
+        public @Store Node root;
+
+        @Override
+        public Nested fill() {
+            root = createNode(DEPTH, 0);
+            return this;
+        }
+
+        private static Node createNode(int depth, int value) {
+            Node node = new Node();
+            node.value = value;
+            node.name = "node" + value;
+            if (depth > 0) {
+                for (int i = 0; i < FANOUT; i++) {
+                    node.children.add(createNode(depth - 1, value * FANOUT + i + 1));
+                }
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Large maps with boxed keys and values.
+     */
+    public static class LargeMaps extends Shape {
+
+        private static final int SIZE = 1000;
+
+        public @Store HashMap<String, Integer> byName;
+        public @Store HashMap<BlockPos, Integer> byPos;
+
+        @Override
+        public LargeMaps fill() {
+            byName = new HashMap<>();
+            byPos = new HashMap<>();
+            for (int i = 0; i < SIZE; i++) {
+                byName.put("entry" + i, i);
+                byPos.put(new BlockPos(i, i % 256, -i), i);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Side configuration, as every machine has it.
+     */
+    public static class EnumMaps extends Shape {
+
+        public @Store EnumMap<EnumFacing, EnumFacing> facing2facing;
+        public @Store EnumMap<EnumFacing, Integer> facing2int;
+        public @Store EnumSet<EnumFacing> facings;
+        public @Store EnumMap<EnumFacing, String> facing2string;
+
+        @Override
+        public EnumMaps fill() {
+            facing2facing = new EnumMap<>(EnumFacing.class);
+            facing2int = new EnumMap<>(EnumFacing.class);
+            facing2string = new EnumMap<>(EnumFacing.class);
+            for (EnumFacing facing : EnumFacing.values()) {
+                facing2facing.put(facing, facing.getOpposite());
+                facing2int.put(facing, facing.ordinal() * 10);
+                facing2string.put(facing, facing.getName());
+            }
+            facings = EnumSet.of(EnumFacing.UP, EnumFacing.NORTH, EnumFacing.EAST);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package info.loenwind.autosave.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import net.minecraft.init.Bootstrap;
+import net.minecraft.nbt.NBTTagCompound;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.loenwind.autosave.Reader;
+import info.loenwind.autosave.Writer;
+import info.loenwind.autosave.util.NBTAction;
+
+/**
+ * Measures {@link Writer#write(NBTAction, NBTTagCompound, Object)} and
+ * {@link Reader#read(NBTAction, NBTTagCompound, Object)} for each {@link Shapes shape} and each {@link NBTAction}.
+ * <p>
+ * Run with the GC profiler (the "jmh" Gradle task does that) to also get the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterReaderBenchmark {
+
+    public enum ShapeType {
+
+        PRIMITIVES(Shapes.Primitives::new),
+        MACHINE(Shapes.Machine::new),
+        NESTED(Shapes.Nested::new),
+        LARGE_MAPS(Shapes.LargeMaps::new),
+        ENUM_MAPS(Shapes.EnumMaps::new);
+
+        private final Supplier<Shapes.Shape> factory;
+
+        private ShapeType(Supplier<Shapes.Shape> factory) {
+            this.factory = factory;
+        }
+    }
+
+    @Param
+    public ShapeType shape;
+
+    @Param
+    public NBTAction action;
+
+    private Shapes.Shape source;
+    private Shapes.Shape target;
+    private NBTTagCompound written;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Bootstrap.register();
+        source = shape.factory.get().fill();
+        target = shape.factory.get();
+        written = new NBTTagCompound();
+        Writer.write(action, written, source);
+    }
+
+    @Benchmark
+    public NBTTagCompound write() {
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(action, tag, source);
+        return tag;
+    }
+
+    @Benchmark
+    public Shapes.Shape read() {
+        Reader.read(action, written, target);
+        return target;
+    }
+}
@@ -1,6 +1,5 @@
 package info.loenwind.autosave;
 
-import java.util.EnumSet;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -93,8 +92,7 @@ public class Reader {
      *                 The object that should be restored
      */
     public static <T> void read(Registry registry, NBTAction phase, @Nullable NBTTagCompound tag, T object) {
-        read(registry, NullHelper.notnullJ(EnumSet.of(phase), "EnumSet.of()"), NullHelper.notnull(tag, "Missing NBT"),
-                object);
+        read(registry, phase.asSet(), NullHelper.notnull(tag, "Missing NBT"), object);
     }
 
     /**
@@ -116,8 +114,7 @@ public class Reader {
      *               The object that should be restored
      */
     public static <T> void read(NBTAction phase, @Nullable NBTTagCompound tag, T object) {
-        read(Registry.GLOBAL_REGISTRY, NullHelper.notnullJ(EnumSet.of(phase), "EnumSet.of()"),
-                NullHelper.notnull(tag, "Missing NBT"), object);
+        read(Registry.GLOBAL_REGISTRY, phase.asSet(), NullHelper.notnull(tag, "Missing NBT"), object);
     }
 
     /**
@@ -138,8 +135,7 @@ public class Reader {
      *                 The object that should be restored
      */
     public static <T> void read(Registry registry, @Nullable NBTTagCompound tag, T object) {
-        read(registry, NullHelper.notnullJ(EnumSet.allOf(NBTAction.class), "EnumSet.allOf()"),
-                NullHelper.notnull(tag, "Missing NBT"), object);
+        read(registry, NBTAction.all(), NullHelper.notnull(tag, "Missing NBT"), object);
     }
 
     /**
@@ -158,8 +154,7 @@ public class Reader {
      *               The object that should be restored
      */
     public static <T> void read(@Nullable NBTTagCompound tag, T object) {
-        read(Registry.GLOBAL_REGISTRY, NullHelper.notnullJ(EnumSet.allOf(NBTAction.class), "EnumSet.allOf()"),
-                NullHelper.notnull(tag, "Missing NBT"), object);
+        read(Registry.GLOBAL_REGISTRY, NBTAction.all(), NullHelper.notnull(tag, "Missing NBT"), object);
     }
 
     /**
@@ -181,7 +176,7 @@ public class Reader {
                                             @Nullable String fieldName, @Nullable T object) {
         try {
             return StorableEngine.getSingleField(Registry.GLOBAL_REGISTRY,
-                    NullHelper.notnullJ(EnumSet.allOf(NBTAction.class), "EnumSet.allOf()"),
+                    NBTAction.all(),
                     NullHelper.notnull(tag, "Missing NBT"), NullHelper.notnull(fieldName, "Missing field name"),
                     NullHelper.notnull(fieldClass, "Missing field class"),
                     object);
@@ -1,10 +1,19 @@
 package info.loenwind.autosave;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -12,12 +21,11 @@ import javax.annotation.Nullable;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.ResourceLocation;
 
-import org.apache.commons.lang3.ArrayUtils;
-
 import info.loenwind.autosave.annotations.Storable;
 import info.loenwind.autosave.handlers.IHandler;
 import info.loenwind.autosave.handlers.forge.HandleFluid;
 import info.loenwind.autosave.handlers.forge.HandleFluidStack;
+import info.loenwind.autosave.handlers.forge.HandleItemStackHandler;
 import info.loenwind.autosave.handlers.forge.HandleRegistryEntry;
 import info.loenwind.autosave.handlers.internal.HandleStorable;
 import info.loenwind.autosave.handlers.java.HandleArrayList;
@@ -28,14 +36,24 @@ import info.loenwind.autosave.handlers.java.HandleEnumMap;
 import info.loenwind.autosave.handlers.java.HandleEnumSet;
 import info.loenwind.autosave.handlers.java.HandleHashMap;
 import info.loenwind.autosave.handlers.java.HandleHashSet;
+import info.loenwind.autosave.handlers.java.HandleLongMap;
+import info.loenwind.autosave.handlers.java.HandleLongSet;
+import info.loenwind.autosave.handlers.java.HandlePackedArray;
 import info.loenwind.autosave.handlers.java.HandlePrimitive;
 import info.loenwind.autosave.handlers.java.HandleString;
+import info.loenwind.autosave.handlers.java.HandleTreeMap;
 import info.loenwind.autosave.handlers.java.util.HandleSimpleCollection;
+import info.loenwind.autosave.handlers.java.util.HandleSimpleMap;
 import info.loenwind.autosave.handlers.minecraft.HandleBlockPos;
 import info.loenwind.autosave.handlers.minecraft.HandleIBlockState;
 import info.loenwind.autosave.handlers.minecraft.HandleItemStack;
+import info.loenwind.autosave.handlers.minecraft.HandleItemStackArray;
+import info.loenwind.autosave.handlers.minecraft.HandleNonNullList;
 import info.loenwind.autosave.handlers.util.DelegatingHandler;
-import info.loenwind.autosave.util.BitUtil;
+import info.loenwind.autosave.handlers.util.HandleGenericType;
+import info.loenwind.autosave.handlers.util.PrimitiveArrays;
+import info.loenwind.autosave.util.AnnotationUtil;
+import info.loenwind.autosave.util.NullHelper;
 import info.loenwind.autosave.util.NullableType;
 import info.loenwind.autosave.util.TypeUtil;
 
@@ -63,138 +81,65 @@ public class Registry {
 
     static {
         // Java primitives
-        GLOBAL_REGISTRY.register(new HandlePrimitive<>(false, Boolean.class, boolean.class,
-                NBTTagCompound::setBoolean, NBTTagCompound::getBoolean));
-        GLOBAL_REGISTRY.register(new HandlePrimitive<>((char) 0, Character.class, char.class,
-                (nbt, name, c) -> nbt.setInteger(name, (int) c), (nbt, name) -> (char) nbt.getInteger(name)));
-        GLOBAL_REGISTRY.register(new HandlePrimitive<>((byte) 0, Byte.class, byte.class, NBTTagCompound::setByte,
-                NBTTagCompound::getByte));
-        GLOBAL_REGISTRY.register(new HandlePrimitive<>((short) 0, Short.class, short.class,
-                NBTTagCompound::setShort, NBTTagCompound::getShort));
-        GLOBAL_REGISTRY.register(new HandlePrimitive<>(0, Integer.class, int.class, NBTTagCompound::setInteger,
-                NBTTagCompound::getInteger));
-        GLOBAL_REGISTRY.register(new HandlePrimitive<>(0L, Long.class, long.class, NBTTagCompound::setLong,
-                NBTTagCompound::getLong));
-        GLOBAL_REGISTRY.register(new HandlePrimitive<>(0F, Float.class, float.class, NBTTagCompound::setFloat,
-                NBTTagCompound::getFloat));
-        GLOBAL_REGISTRY.register(new HandlePrimitive<>(0D, Double.class, double.class, NBTTagCompound::setDouble,
-                NBTTagCompound::getDouble));
+        GLOBAL_REGISTRY.register(HandlePrimitive.BOOLEAN);
+        GLOBAL_REGISTRY.register(HandlePrimitive.CHAR);
+        GLOBAL_REGISTRY.register(HandlePrimitive.BYTE);
+        GLOBAL_REGISTRY.register(HandlePrimitive.SHORT);
+        GLOBAL_REGISTRY.register(HandlePrimitive.INT);
+        GLOBAL_REGISTRY.register(HandlePrimitive.LONG);
+        GLOBAL_REGISTRY.register(HandlePrimitive.FLOAT);
+        GLOBAL_REGISTRY.register(HandlePrimitive.DOUBLE);
         GLOBAL_REGISTRY.register(new HandleEnum());
         GLOBAL_REGISTRY.register(new HandleString());
 
-        // Primitive array handlers
+        // Primitive array handlers, see PrimitiveArrays for the formats
 
         // byte/Byte
-        IHandler<byte[]> byteArrayHandler = new HandlePrimitive<byte @NullableType []>(new byte[0], byte[].class, null,
-                NBTTagCompound::setByteArray, NBTTagCompound::getByteArray);
-        GLOBAL_REGISTRY.register(byteArrayHandler);
-        GLOBAL_REGISTRY.register(
-                new DelegatingHandler<>(Byte[].class, byteArrayHandler, ArrayUtils::toPrimitive, ArrayUtils::toObject));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<byte @NullableType []>(new byte[0], byte[].class, null,
+                NBTTagCompound::setByteArray, NBTTagCompound::getByteArray));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<Byte @NullableType []>(new Byte[0], Byte[].class, null,
+                PrimitiveArrays::writeBoxedBytes, PrimitiveArrays::readBoxedBytes));
 
         // int/Integer
-        IHandler<int[]> intArrayHandler = new HandlePrimitive<int @NullableType []>(new int[0], int[].class, null,
-                NBTTagCompound::setIntArray, NBTTagCompound::getIntArray);
-        GLOBAL_REGISTRY.register(intArrayHandler);
-        GLOBAL_REGISTRY.register(new DelegatingHandler<>(Integer[].class, intArrayHandler, ArrayUtils::toPrimitive,
-                ArrayUtils::toObject));
-
-        // The rest are packed into int[]
+        GLOBAL_REGISTRY.register(new HandlePrimitive<int @NullableType []>(new int[0], int[].class, null,
+                NBTTagCompound::setIntArray, NBTTagCompound::getIntArray));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<Integer @NullableType []>(new Integer[0], Integer[].class, null,
+                PrimitiveArrays::writeBoxedInts, PrimitiveArrays::readBoxedInts));
 
         // short/Short
-        IHandler<short[]> shortArrayHandler = new HandlePrimitive<short @NullableType []>(new short[0], short[].class,
-                null,
-                (nbt, name, arr) -> {
-                    int[] ret = new int[arr.length];
-                    for (int i = 0; i < ret.length; i++) {
-                        ret[i] = arr[i];
-                    }
-                    nbt.setIntArray(name, ret);
-                },
-                (nbt, name) -> {
-                    int[] read = nbt.getIntArray(name);
-                    short[] ret = new short[read.length];
-                    for (int i = 0; i < ret.length; i++) {
-                        ret[i] = (short) read[i];
-                    }
-                    return ret;
-                });
-        GLOBAL_REGISTRY.register(shortArrayHandler);
-        GLOBAL_REGISTRY.register(new DelegatingHandler<>(Short[].class, shortArrayHandler, ArrayUtils::toPrimitive,
-                ArrayUtils::toObject));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<short @NullableType []>(new short[0], short[].class, null,
+                PrimitiveArrays::writeShorts, PrimitiveArrays::readShorts));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<Short @NullableType []>(new Short[0], Short[].class, null,
+                PrimitiveArrays::writeBoxedShorts, PrimitiveArrays::readBoxedShorts));
 
         // char/Character
-        IHandler<char[]> charArrayHandler = new HandlePrimitive<char @NullableType []>(new char[0], char[].class, null,
-                (nbt, name, arr) -> {
-                    int[] ret = new int[arr.length];
-                    for (int i = 0; i < ret.length; i++) {
-                        ret[i] = arr[i];
-                    }
-                    nbt.setIntArray(name, ret);
-                },
-                (nbt, name) -> {
-                    int[] read = nbt.getIntArray(name);
-                    char[] ret = new char[read.length];
-                    for (int i = 0; i < ret.length; i++) {
-                        ret[i] = (char) read[i];
-                    }
-                    return ret;
-                });
-        GLOBAL_REGISTRY.register(charArrayHandler);
-        GLOBAL_REGISTRY.register(new DelegatingHandler<>(Character[].class, charArrayHandler, ArrayUtils::toPrimitive,
-                ArrayUtils::toObject));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<char @NullableType []>(new char[0], char[].class, null,
+                PrimitiveArrays::writeChars, PrimitiveArrays::readChars));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<Character @NullableType []>(new Character[0],
+                Character[].class, null, PrimitiveArrays::writeBoxedChars, PrimitiveArrays::readBoxedChars));
 
         // float/Float
-        IHandler<float[]> floatArrayHandler = new HandlePrimitive<float @NullableType []>(new float[0], float[].class,
-                null,
-                (nbt, name, arr) -> {
-                    int[] ret = new int[arr.length];
-                    for (int i = 0; i < ret.length; i++) {
-                        ret[i] = Float.floatToIntBits(arr[i]);
-                    }
-                    nbt.setIntArray(name, ret);
-                },
-                (nbt, name) -> {
-                    int[] read = nbt.getIntArray(name);
-                    float[] ret = new float[read.length];
-                    for (int i = 0; i < ret.length; i++) {
-                        ret[i] = Float.intBitsToFloat(read[i]);
-                    }
-                    return ret;
-                });
-        GLOBAL_REGISTRY.register(floatArrayHandler);
-        GLOBAL_REGISTRY.register(new DelegatingHandler<>(Float[].class, floatArrayHandler, ArrayUtils::toPrimitive,
-                ArrayUtils::toObject));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<float @NullableType []>(new float[0], float[].class, null,
+                PrimitiveArrays::writeFloats, PrimitiveArrays::readFloats));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<Float @NullableType []>(new Float[0], Float[].class, null,
+                PrimitiveArrays::writeBoxedFloats, PrimitiveArrays::readBoxedFloats));
 
         // long/Long
-        IHandler<long[]> longArrayHandler = new HandlePrimitive<long @NullableType []>(new long[0], long[].class, null,
-                (nbt, name, arr) -> {
-                    int[] ret = new int[arr.length * 2];
-                    for (int i = 0; i < arr.length; i++) {
-                        ret[i * 2] = BitUtil.getLongMSB(arr[i]);
-                        ret[i * 2 + 1] = BitUtil.getLongLSB(arr[i]);
-                    }
-                    nbt.setIntArray(name, ret);
-                },
-                (nbt, name) -> {
-                    int[] read = nbt.getIntArray(name);
-                    long[] ret = new long[read.length / 2];
-                    for (int i = 0; i < ret.length; i++) {
-                        ret[i] = BitUtil.longFromInts(read[i * 2], read[i * 2 + 1]);
-                    }
-                    return ret;
-                });
-        GLOBAL_REGISTRY.register(longArrayHandler);
-        GLOBAL_REGISTRY.register(
-                new DelegatingHandler<>(Long[].class, longArrayHandler, ArrayUtils::toPrimitive, ArrayUtils::toObject));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<long @NullableType []>(new long[0], long[].class, null,
+                PrimitiveArrays::writeLongs, PrimitiveArrays::readLongs));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<Long @NullableType []>(new Long[0], Long[].class, null,
+                PrimitiveArrays::writeBoxedLongs, PrimitiveArrays::readBoxedLongs));
 
         // double/Double
-        // Reuse the long[] handler since we can just stream convert
-        IHandler<double[]> doubleArrayHandler = new DelegatingHandler<>(double[].class, longArrayHandler,
-                (doubleArr) -> Arrays.stream(doubleArr).mapToLong(Double::doubleToLongBits).toArray(),
-                (longArr) -> Arrays.stream(longArr).mapToDouble(Double::longBitsToDouble).toArray());
-        GLOBAL_REGISTRY.register(doubleArrayHandler);
-        GLOBAL_REGISTRY.register(new DelegatingHandler<>(Double[].class, doubleArrayHandler, ArrayUtils::toPrimitive,
-                ArrayUtils::toObject));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<double @NullableType []>(new double[0], double[].class, null,
+                PrimitiveArrays::writeDoubles, PrimitiveArrays::readDoubles));
+        GLOBAL_REGISTRY.register(new HandlePrimitive<Double @NullableType []>(new Double[0], Double[].class, null,
+                PrimitiveArrays::writeBoxedDoubles, PrimitiveArrays::readBoxedDoubles));
+
+        // ItemStack arrays, this MUST be before HandleArrays
+        GLOBAL_REGISTRY.register(new HandleItemStackArray());
+        // Packed arrays (enums, BlockPos), this MUST be before HandleArrays
+        GLOBAL_REGISTRY.register(new HandlePackedArray());
 
         // Fallback array handler
         GLOBAL_REGISTRY.register(new HandleArrays());
@@ -205,18 +150,31 @@ public class Registry {
         GLOBAL_REGISTRY.register(new HandleArrayList());
         // LinkedList
         GLOBAL_REGISTRY.register(new HandleSimpleCollection<>(LinkedList.class));
+        // ArrayDeque
+        GLOBAL_REGISTRY.register(new HandleSimpleCollection<>(ArrayDeque.class, ArrayDeque::new, ArrayDeque::new));
 
         // Set/HashSet
         GLOBAL_REGISTRY.register(new HandleHashSet());
         GLOBAL_REGISTRY.register(new HandleEnumSet());
 
+        // LinkedHashMap, this MUST be before HandleHashMap, which would read it as a HashMap
+        GLOBAL_REGISTRY.register(new HandleSimpleMap<>(LinkedHashMap.class, LinkedHashMap::new,
+                size -> new LinkedHashMap(HandleGenericType.hashCapacity(size))));
         GLOBAL_REGISTRY.register(new HandleHashMap());
+        GLOBAL_REGISTRY.register(new HandleTreeMap());
+        GLOBAL_REGISTRY.register(new HandleSimpleMap<>(ConcurrentHashMap.class, ConcurrentHashMap::new,
+                ConcurrentHashMap::new));
         GLOBAL_REGISTRY.register(new HandleEnum2EnumMap<>()); // This MUST be before HandleEnumMap, special case
         GLOBAL_REGISTRY.register(new HandleEnumMap<>());
 
+        // Primitive long collections
+        GLOBAL_REGISTRY.register(new HandleLongSet());
+        GLOBAL_REGISTRY.register(new HandleLongMap());
+
         // Minecraft basic types
         GLOBAL_REGISTRY.register(new HandleRegistryEntry());
         GLOBAL_REGISTRY.register(new HandleItemStack());
+        GLOBAL_REGISTRY.register(new HandleNonNullList());
         GLOBAL_REGISTRY.register(new HandleBlockPos());
         GLOBAL_REGISTRY.register(new HandleIBlockState());
         GLOBAL_REGISTRY.register(new DelegatingHandler<>(ResourceLocation.class, new HandleString(),
@@ -225,6 +183,7 @@ public class Registry {
         // Forge basic types
         GLOBAL_REGISTRY.register(new HandleFluidStack());
         GLOBAL_REGISTRY.register(new HandleFluid());
+        GLOBAL_REGISTRY.register(new HandleItemStackHandler());
 
         // Annotated objects
         GLOBAL_REGISTRY.register(new HandleStorable<>());
@@ -234,6 +193,56 @@ public class Registry {
     @Nullable
     private final Registry parent;
 
+    /**
+     * Incremented whenever a handler is registered. The sum over this registry and its parents tells if cached results
+     * of {@link #findHandlers(Type)} are still valid.
+     */
+    private volatile int modCount = 0;
+    /**
+     * Cached results of {@link #findHandlers(Type)} for classes. Held by the classes themselves, so they can still be
+     * unloaded.
+     */
+    private final ClassValue<CacheSlot> classCache = new CacheSlots();
+    /**
+     * Cached results of {@link #findHandlers(Type)} for all other types. The keys are weak for the same reason.
+     */
+    private final Map<Type, CachedHandlers> typeCache = NullHelper
+            .notnullJ(Collections.synchronizedMap(new WeakHashMap<>()), "Collections#synchronizedMap");
+
+    /**
+     * Set by {@link #bake()}. Frozen registries reject new handlers.
+     */
+    private volatile boolean frozen = false;
+    /**
+     * The indexed handlers of this registry and all its parents, see {@link #bake()}. Rebuilt when a handler is
+     * registered with one of the parents.
+     */
+    private volatile @Nullable BakedHandlers baked = null;
+
+    private static final class CacheSlot {
+
+        volatile @Nullable CachedHandlers value = null;
+    }
+
+    private static final class CacheSlots extends ClassValue<CacheSlot> {
+
+        @Override
+        protected CacheSlot computeValue(@Nullable Class<?> type) {
+            return new CacheSlot();
+        }
+    }
+
+    private static final class CachedHandlers {
+
+        final int stamp;
+        final @Nonnull List<IHandler> handlers;
+
+        CachedHandlers(int stamp, List<IHandler> handlers) {
+            this.stamp = stamp;
+            this.handlers = handlers;
+        }
+    }
+
     /**
      * Creates the {@link Registry#GLOBAL_REGISTRY}.
      * 
@@ -268,7 +277,9 @@ public class Registry {
      *                The {@link IHandler} to register
      */
     public void register(IHandler handler) {
+        checkNotFrozen();
         handlers.add(handler);
+        modCount++;
     }
 
     /**
@@ -278,7 +289,52 @@ public class Registry {
      *                The {@link IHandler} to register
      */
     public void registerPriority(IHandler handler) {
+        checkNotFrozen();
         handlers.add(0, handler);
+        modCount++;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Cannot register handlers with a registry that has been baked");
+        }
+    }
+
+    /**
+     * Freezes this registry and builds an index of its handlers and those of its super-registries.
+     * <p>
+     * Handlers that use the default {@link IHandler#getHandler(Registry, Type)} are indexed by their
+     * {@link IHandler#getRootType() root type}, so a lookup only has to consult the handlers registered for the
+     * class of the type, its superclasses and its interfaces. All other handlers (arrays, generics, {@link Storable},
+     * ...) are still asked for every type. The order of the results does not change.
+     * <p>
+     * This should be called once all handlers have been registered, e.g. after mod initialization. Afterwards
+     * {@link #register(IHandler)} and {@link #registerPriority(IHandler)} will throw an {@link IllegalStateException}
+     * for this registry. The super-registries are not frozen, the index is rebuilt if handlers are registered with
+     * them later. Baking a registry again has no effect.
+     */
+    public void bake() {
+        frozen = true;
+        if (baked == null) {
+            baked = createBaked();
+        }
+    }
+
+    private BakedHandlers createBaked() {
+        // Taken first, so a handler registered while flattening makes the result stale instead of being missed
+        final int stamp = getModStamp();
+        List<IHandler> flattened = new ArrayList<>();
+        for (Registry registry = this; registry != null; registry = registry.parent) {
+            flattened.addAll(registry.handlers);
+        }
+        return new BakedHandlers(flattened, stamp);
+    }
+
+    /**
+     * @return <code>true</code> if {@link #bake()} has been called on this registry.
+     */
+    public boolean isFrozen() {
+        return frozen;
     }
 
     /**
@@ -303,28 +359,60 @@ public class Registry {
      * <p>
      * Note 3: If a handler can handle a class but not its subclasses, it will not be added to this list for the
      * subclasses.
+     * <p>
+     * Note 4: Results are cached per {@link TypeUtil#canonicalize(Type) canonical} type until a handler is registered
+     * with this registry or one of its super-registries.
      * 
      * @param type
      *             The class that should be handled
-     * @return A list of all {@link IHandler}s that can handle the class. If none are found, an empty list is returned.
+     * @return An unmodifiable list of all {@link IHandler}s that can handle the class. If none are found, an empty list
+     *         is returned.
      *
      * @throws InstantiationException From reflection
      * @throws IllegalAccessException From reflection
      */
 
     public List<IHandler> findHandlers(Type type) throws InstantiationException, IllegalAccessException {
+        final int stamp = getModStamp();
+        final CacheSlot slot = type instanceof Class ? classCache.get((Class<?>) type) : null;
+        // Structurally equal types find the same entry, so only a miss needs the canonical type
+        CachedHandlers cached = slot != null ? slot.value : typeCache.get(type);
+        if (cached != null && cached.stamp == stamp) {
+            return cached.handlers;
+        }
+        final Type canonicalType = TypeUtil.canonicalize(type);
+        // Not using computeIfAbsent() because handlers may look up their sub-handlers while we are resolving
+        List<IHandler> result = resolveHandlers(canonicalType);
+        cached = new CachedHandlers(stamp, result);
+        if (slot != null) {
+            slot.value = cached;
+        } else {
+            typeCache.put(canonicalType, cached);
+        }
+        return result;
+    }
+
+    private int getModStamp() {
+        int stamp = 0;
+        for (Registry registry = this; registry != null; registry = registry.parent) {
+            stamp += registry.modCount;
+        }
+        return stamp;
+    }
+
+    private List<IHandler> resolveHandlers(Type type) throws InstantiationException, IllegalAccessException {
         List<IHandler> result = new ArrayList<>();
 
         @Nonnull
         Class<?> clazz = TypeUtil.toClass(type);
-        Storable annotation = clazz.getAnnotation(Storable.class);
+        Storable annotation = AnnotationUtil.getStorable(clazz);
         while (annotation != null) {
             if (annotation.handler() != HandleStorable.class) {
-                result.add(annotation.handler().newInstance());
+                result.add(AnnotationUtil.getHandlerInstance(annotation.handler()));
             }
             Class<?> superclass = clazz.getSuperclass();
             if (superclass != null) {
-                annotation = superclass.getAnnotation(Storable.class);
+                annotation = AnnotationUtil.getStorable(superclass);
                 clazz = superclass;
             } else {
                 // Theoretically impossible as the hierarchy should always
@@ -335,7 +423,10 @@ public class Registry {
 
         findRegisteredHandlers(this, type, result);
 
-        return result;
+        if (result.isEmpty()) {
+            return NullHelper.notnullJ(Collections.<IHandler> emptyList(), "Collections#emptyList");
+        }
+        return NullHelper.notnullJ(Collections.unmodifiableList(result), "Collections#unmodifiableList");
     }
 
     /**
@@ -343,6 +434,17 @@ public class Registry {
      * given list.
      */
     private void findRegisteredHandlers(Registry caller, Type type, List<IHandler> result) {
+        BakedHandlers thisBaked = baked;
+        if (thisBaked != null) {
+            if (thisBaked.stamp != getModStamp()) {
+                // A handler was registered with a parent
+                thisBaked = createBaked();
+                baked = thisBaked;
+            }
+            // Covers the parents, too
+            thisBaked.findHandlers(caller, type, result);
+            return;
+        }
         for (IHandler handler : handlers) {
             handler = handler.getHandler(caller, type);
             if (handler != null) {
@@ -354,4 +456,128 @@ public class Registry {
             thisParent.findRegisteredHandlers(caller, type, result);
         }
     }
+
+    /**
+     * The flattened and indexed handlers of a baked registry chain.
+     */
+    private static final class BakedHandlers {
+
+        /**
+         * The sum of the mod counts of the flattened registries when they were flattened.
+         */
+        final int stamp;
+        private final @Nonnull IHandler[] all;
+        /**
+         * The positions in {@link #all} of the handlers with a default {@link IHandler#getHandler(Registry, Type)},
+         * keyed by their root type.
+         */
+        private final @Nonnull Map<Class<?>, int[]> byRootType = new HashMap<>();
+        /**
+         * The positions in {@link #all} of all other handlers.
+         */
+        private final @Nonnull int[] dynamic;
+        /**
+         * The positions in {@link #all} of the handlers to ask for a class, in order.
+         */
+        private final @Nonnull ClassValue<int[]> candidates = new ClassValue<int[]>() {
+
+            @Override
+            protected int[] computeValue(@Nullable Class<?> type) {
+                return findCandidates(NullHelper.notnullJ(type, "ClassValue#computeValue"));
+            }
+        };
+
+        BakedHandlers(List<IHandler> handlers, int stamp) {
+            this.stamp = stamp;
+            all = NullHelper.notnullJ(handlers.toArray(new IHandler[handlers.size()]), "List#toArray");
+            List<Integer> dynamicList = new ArrayList<>();
+            Map<Class<?>, List<Integer>> indexed = new HashMap<>();
+            for (int i = 0; i < all.length; i++) {
+                IHandler handler = all[i];
+                if (usesDefaultGetHandler(handler)) {
+                    indexed.computeIfAbsent(handler.getRootType(), unused -> new ArrayList<>()).add(i);
+                } else {
+                    dynamicList.add(i);
+                }
+            }
+            for (Map.Entry<Class<?>, List<Integer>> entry : indexed.entrySet()) {
+                byRootType.put(entry.getKey(), toArray(NullHelper.notnullJ(entry.getValue(), "Map.Entry#getValue")));
+            }
+            dynamic = toArray(dynamicList);
+        }
+
+        private static boolean usesDefaultGetHandler(IHandler handler) {
+            try {
+                return handler.getClass().getMethod("getHandler", Registry.class, Type.class)
+                        .getDeclaringClass() == IHandler.class;
+            } catch (NoSuchMethodException | SecurityException e) {
+                return false;
+            }
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] result = new int[list.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = list.get(i);
+            }
+            return result;
+        }
+
+        void findHandlers(Registry caller, Type type, List<IHandler> result) {
+            for (int i : NullHelper.notnullJ(candidates.get(TypeUtil.toClass(type)), "ClassValue#get")) {
+                IHandler handler = all[i].getHandler(caller, type);
+                if (handler != null) {
+                    result.add(handler);
+                }
+            }
+        }
+
+        private int[] findCandidates(Class<?> clazz) {
+            boolean[] marked = new boolean[all.length];
+            for (int i : dynamic) {
+                marked[i] = true;
+            }
+            Set<Class<?>> supertypes = new HashSet<>();
+            addSupertypes(clazz, supertypes);
+            if (!clazz.isPrimitive()) {
+                // Interfaces don't have Object as their superclass, but are assignable to it
+                supertypes.add(Object.class);
+            }
+            for (Class<?> supertype : supertypes) {
+                int[] bucket = byRootType.get(supertype);
+                if (bucket != null) {
+                    for (int i : bucket) {
+                        marked[i] = true;
+                    }
+                }
+            }
+            List<Integer> result = new ArrayList<>();
+            for (int i = 0; i < marked.length; i++) {
+                if (marked[i]) {
+                    result.add(i);
+                }
+            }
+            return toArray(result);
+        }
+
+        private static void addSupertypes(@Nullable Class<?> clazz, Set<Class<?>> result) {
+            if (clazz == null || !result.add(clazz)) {
+                return;
+            }
+            addSupertypes(clazz.getSuperclass(), result);
+            for (Class<?> iface : clazz.getInterfaces()) {
+                addSupertypes(iface, result);
+            }
+            Class<?> component = clazz.getComponentType();
+            if (component != null && !component.isPrimitive()) {
+                // Arrays are covariant, so they are also assignable to the arrays of their component's supertypes
+                Set<Class<?>> componentSupertypes = new HashSet<>();
+                addSupertypes(component, componentSupertypes);
+                componentSupertypes.add(Object.class);
+                for (Class<?> componentSupertype : componentSupertypes) {
+                    addSupertypes(Array.newInstance(componentSupertype, 0).getClass(), result);
+                }
+            }
+        }
+    }
 }
@@ -1,7 +1,6 @@
 package info.loenwind.autosave;
 
 import java.lang.reflect.Type;
-import java.util.EnumSet;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -94,8 +93,7 @@ public class Writer {
      *                 The object that should be stored
      */
     public static <T> void write(Registry registry, NBTAction phase, @Nullable NBTTagCompound tag, T object) {
-        write(registry, NullHelper.notnullJ(EnumSet.of(phase), "EnumSet.of()"), NullHelper.notnull(tag, "Missing NBT"),
-                object);
+        write(registry, phase.asSet(), NullHelper.notnull(tag, "Missing NBT"), object);
     }
 
     /**
@@ -117,8 +115,7 @@ public class Writer {
      *               The object that should be stored
      */
     public static <T> void write(NBTAction phase, @Nullable NBTTagCompound tag, T object) {
-        write(Registry.GLOBAL_REGISTRY, NullHelper.notnullJ(EnumSet.of(phase), "EnumSet.of()"),
-                NullHelper.notnull(tag, "Missing NBT"), object);
+        write(Registry.GLOBAL_REGISTRY, phase.asSet(), NullHelper.notnull(tag, "Missing NBT"), object);
     }
 
     /**
@@ -139,8 +136,7 @@ public class Writer {
      *                 The object that should be stored
      */
     public static <T> void write(Registry registry, @Nullable NBTTagCompound tag, T object) {
-        write(registry, NullHelper.notnullJ(EnumSet.allOf(NBTAction.class), "EnumSet.allOf()"),
-                NullHelper.notnull(tag, "Missing NBT"), object);
+        write(registry, NBTAction.all(), NullHelper.notnull(tag, "Missing NBT"), object);
     }
 
     /**
@@ -159,8 +155,7 @@ public class Writer {
      *               The object that should be stored
      */
     public static <T> void write(@Nullable NBTTagCompound tag, T object) {
-        write(Registry.GLOBAL_REGISTRY, NullHelper.notnullJ(EnumSet.allOf(NBTAction.class), "EnumSet.allOf()"),
-                NullHelper.notnull(tag, "Missing NBT"), object);
+        write(Registry.GLOBAL_REGISTRY, NBTAction.all(), NullHelper.notnull(tag, "Missing NBT"), object);
     }
 
     /**
@@ -180,7 +175,7 @@ public class Writer {
                                       @Nullable String fieldName, @Nullable T object) {
         try {
             StorableEngine.setSingleField(Registry.GLOBAL_REGISTRY,
-                    NullHelper.notnullJ(EnumSet.allOf(NBTAction.class), "EnumSet.allOf()"),
+                    NBTAction.all(),
                     NullHelper.notnull(tag, "Missing NBT"), NullHelper.notnull(fieldName, "Missing field name"),
                     NullHelper.notnull(fieldType, "Missing field class"),
                     object);
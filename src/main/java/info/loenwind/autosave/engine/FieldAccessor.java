@@ -0,0 +1,128 @@
+package info.loenwind.autosave.engine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import info.loenwind.autosave.util.Log;
+import info.loenwind.autosave.util.NullHelper;
+
+/**
+ * Reads and writes a single {@link Field} for the {@link StorableEngine}.
+ * <p>
+ * Accessors are created once per field when a class is cached. Where possible, they use {@link MethodHandle}s that
+ * have been adapted to an erased <code>(Object)Object</code> shape, so they can be invoked with
+ * {@link MethodHandle#invokeExact(Object...) invokeExact} and be inlined by the JIT. Fields that cannot be accessed
+ * that way (e.g. final fields) fall back to plain reflection.
+ */
+abstract class FieldAccessor {
+
+    private static final @Nonnull MethodType GETTER_TYPE = NullHelper
+            .notnullJ(MethodType.methodType(Object.class, Object.class), "MethodType#methodType");
+    private static final @Nonnull MethodType SETTER_TYPE = NullHelper
+            .notnullJ(MethodType.methodType(void.class, Object.class, Object.class), "MethodType#methodType");
+
+    protected final @Nonnull Field field;
+
+    protected FieldAccessor(Field field) {
+        this.field = field;
+    }
+
+    /**
+     * Creates the fastest available accessor for the given field. The field is made accessible as a side effect.
+     */
+    static FieldAccessor of(Field field) {
+        field.setAccessible(true);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle getter = lookup.unreflectGetter(field);
+            MethodHandle setter = lookup.unreflectSetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                // Static fields have no receiver, take one anyway so all handles have the same shape
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+                setter = MethodHandles.dropArguments(setter, 0, Object.class);
+            }
+            getter = getter.asType(GETTER_TYPE);
+            setter = setter.asType(SETTER_TYPE);
+            return new Handles(field, NullHelper.notnullJ(getter, "MethodHandle#asType"),
+                    NullHelper.notnullJ(setter, "MethodHandle#asType"));
+        } catch (IllegalAccessException | SecurityException e) {
+            Log.debug("Using reflection to access field ", field, ": ", e);
+            return new Reflection(field);
+        }
+    }
+
+    @Nullable
+    abstract Object get(Object object) throws IllegalAccessException;
+
+    abstract void set(Object object, @Nullable Object value) throws IllegalAccessException;
+
+    @Override
+    public String toString() {
+        return NullHelper.notnullJ(field.toString(), "Field#toString");
+    }
+
+    /**
+     * Accessor backed by {@link MethodHandle}s.
+     */
+    private static final class Handles extends FieldAccessor {
+
+        private final @Nonnull MethodHandle getter;
+        private final @Nonnull MethodHandle setter;
+
+        Handles(Field field, MethodHandle getter, MethodHandle setter) {
+            super(field);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        @Nullable
+        Object get(Object object) {
+            try {
+                return (Object) getter.invokeExact(object);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException("Failed to read field " + field, e);
+            }
+        }
+
+        @Override
+        void set(Object object, @Nullable Object value) {
+            try {
+                setter.invokeExact(object, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException("Failed to write field " + field, e);
+            }
+        }
+    }
+
+    /**
+     * Fallback accessor that uses {@link Field#get(Object)} and {@link Field#set(Object, Object)}.
+     */
+    private static final class Reflection extends FieldAccessor {
+
+        Reflection(Field field) {
+            super(field);
+        }
+
+        @Override
+        @Nullable
+        Object get(Object object) throws IllegalAccessException {
+            return field.get(object);
+        }
+
+        @Override
+        void set(Object object, @Nullable Object value) throws IllegalAccessException {
+            field.set(object, value);
+        }
+    }
+}
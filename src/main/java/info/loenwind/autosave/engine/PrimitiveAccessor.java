@@ -0,0 +1,173 @@
+package info.loenwind.autosave.engine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.java.HandlePrimitive;
+import info.loenwind.autosave.util.Log;
+import info.loenwind.autosave.util.NullHelper;
+
+/**
+ * (Re-)stores a field of a Java primitive type without boxing its value.
+ * <p>
+ * This is only used when the first handler of the field is the built-in {@link HandlePrimitive} for its type, and it
+ * writes exactly the same NBT as that handler would. The getter and setter {@link MethodHandle}s are adapted to
+ * <code>(Object)prim</code> and <code>(Object,prim)void</code>, so no wrapper objects are created on either side.
+ */
+final class PrimitiveAccessor {
+
+    private enum Kind {
+        BOOLEAN(boolean.class, HandlePrimitive.BOOLEAN),
+        CHAR(char.class, HandlePrimitive.CHAR),
+        BYTE(byte.class, HandlePrimitive.BYTE),
+        SHORT(short.class, HandlePrimitive.SHORT),
+        INT(int.class, HandlePrimitive.INT),
+        LONG(long.class, HandlePrimitive.LONG),
+        FLOAT(float.class, HandlePrimitive.FLOAT),
+        DOUBLE(double.class, HandlePrimitive.DOUBLE);
+
+        final @Nonnull Class<?> type;
+        final @Nonnull IHandler<?> handler;
+
+        private Kind(Class<?> type, IHandler<?> handler) {
+            this.type = type;
+            this.handler = handler;
+        }
+    }
+
+    private final @Nonnull Kind kind;
+    private final @Nonnull String name;
+    private final @Nonnull MethodHandle getter;
+    private final @Nonnull MethodHandle setter;
+
+    private PrimitiveAccessor(Kind kind, String name, MethodHandle getter, MethodHandle setter) {
+        this.kind = kind;
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * Creates an accessor for the given field if the given handler is the built-in handler for the field's primitive
+     * type.
+     *
+     * @return The accessor, or <code>null</code> if the field must go through its handler chain
+     */
+    static @Nullable PrimitiveAccessor of(Field field, String name, IHandler<?> handler) {
+        Class<?> type = field.getType();
+        if (!type.isPrimitive() || Modifier.isFinal(field.getModifiers())) {
+            return null;
+        }
+        for (Kind kind : Kind.values()) {
+            if (kind.type == type) {
+                if (kind.handler != handler) {
+                    return null;
+                }
+                field.setAccessible(true);
+                try {
+                    MethodHandles.Lookup lookup = MethodHandles.lookup();
+                    MethodHandle getter = lookup.unreflectGetter(field);
+                    MethodHandle setter = lookup.unreflectSetter(field);
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        getter = MethodHandles.dropArguments(getter, 0, Object.class);
+                        setter = MethodHandles.dropArguments(setter, 0, Object.class);
+                    }
+                    getter = getter.asType(MethodType.methodType(type, Object.class));
+                    setter = setter.asType(MethodType.methodType(void.class, Object.class, type));
+                    return new PrimitiveAccessor(kind, name, NullHelper.notnullJ(getter, "MethodHandle#asType"),
+                            NullHelper.notnullJ(setter, "MethodHandle#asType"));
+                } catch (IllegalAccessException | SecurityException e) {
+                    Log.debug("Not using primitive access for field ", field, ": ", e);
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    void store(NBTTagCompound tag, Object object) {
+        try {
+            switch (kind) {
+            case BOOLEAN:
+                tag.setBoolean(name, (boolean) getter.invokeExact(object));
+                break;
+            case CHAR:
+                tag.setInteger(name, (char) getter.invokeExact(object));
+                break;
+            case BYTE:
+                tag.setByte(name, (byte) getter.invokeExact(object));
+                break;
+            case SHORT:
+                tag.setShort(name, (short) getter.invokeExact(object));
+                break;
+            case INT:
+                tag.setInteger(name, (int) getter.invokeExact(object));
+                break;
+            case LONG:
+                tag.setLong(name, (long) getter.invokeExact(object));
+                break;
+            case FLOAT:
+                tag.setFloat(name, (float) getter.invokeExact(object));
+                break;
+            case DOUBLE:
+                tag.setDouble(name, (double) getter.invokeExact(object));
+                break;
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to read field " + name, e);
+        }
+    }
+
+    /**
+     * Reads the value from the NBT into the field. Like {@link HandlePrimitive}, the field keeps its current value if
+     * the NBT has no such value.
+     */
+    void read(NBTTagCompound tag, Object object) {
+        if (!tag.hasKey(name)) {
+            return;
+        }
+        try {
+            switch (kind) {
+            case BOOLEAN:
+                setter.invokeExact(object, tag.getBoolean(name));
+                break;
+            case CHAR:
+                setter.invokeExact(object, (char) tag.getInteger(name));
+                break;
+            case BYTE:
+                setter.invokeExact(object, tag.getByte(name));
+                break;
+            case SHORT:
+                setter.invokeExact(object, tag.getShort(name));
+                break;
+            case INT:
+                setter.invokeExact(object, tag.getInteger(name));
+                break;
+            case LONG:
+                setter.invokeExact(object, tag.getLong(name));
+                break;
+            case FLOAT:
+                setter.invokeExact(object, tag.getFloat(name));
+                break;
+            case DOUBLE:
+                setter.invokeExact(object, tag.getDouble(name));
+                break;
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to write field " + name, e);
+        }
+    }
+}
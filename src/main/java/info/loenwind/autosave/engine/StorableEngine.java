@@ -1,19 +1,10 @@
 package info.loenwind.autosave.engine;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -25,14 +16,11 @@ import com.google.common.base.Preconditions;
 import info.loenwind.autosave.Reader;
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.Writer;
-import info.loenwind.autosave.annotations.AfterRead;
-import info.loenwind.autosave.annotations.Factory;
 import info.loenwind.autosave.annotations.Storable;
 import info.loenwind.autosave.annotations.Store;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
 import info.loenwind.autosave.handlers.IHandler;
 import info.loenwind.autosave.handlers.internal.HandleStorable;
-import info.loenwind.autosave.handlers.internal.NullHandler;
 import info.loenwind.autosave.util.Log;
 import info.loenwind.autosave.util.NBTAction;
 import info.loenwind.autosave.util.NullHelper;
@@ -56,55 +44,30 @@ import info.loenwind.autosave.util.TypeUtil;
  * {@link HandleStorable}---which delegates here.
  * <p>
  * Note 2: There are public entrances to this class in {@link Writer} and {@link Reader}.
+ * <p>
+ * Note 3: The reflective work for each class is done once per {@link Registry} and kept in an immutable
+ * {@link StorablePlan} that is shared by all threads.
  */
 @SuppressWarnings({ "rawtypes", "unchecked" })
 public class StorableEngine {
 
-    private static final ThreadLocal<StorableEngine> INSTANCE = ThreadLocal.withInitial(StorableEngine::new);
-
-    @FunctionalInterface
-    private interface ObjectFactory {
-
-        @Nullable
-        Object get() throws InstantiationException, IllegalAccessException,
-                     IllegalArgumentException, InvocationTargetException;
-    }
-
-    private static class AfterReadCallback {
-
-        private final Method callback;
-        private final boolean isStatic;
+    private static final @Nonnull StorableEngine INSTANCE = new StorableEngine();
 
-        AfterReadCallback(Method m) throws IllegalArgumentException {
-            Preconditions.checkArgument(m.getReturnType() == void.class, "AfterRead methods cannot return a value", m);
-            Preconditions.checkArgument(m.getParameterCount() == 0, "AfterRead methods cannot take parameters", m);
-
-            m.setAccessible(true);
-            this.callback = m;
-            this.isStatic = Modifier.isStatic(m.getModifiers());
-        }
-
-        public void apply(Object inst) throws IllegalAccessException, IllegalArgumentException,
-                                       InvocationTargetException {
-            callback.invoke(isStatic ? null : inst);
-        }
+    /**
+     * The plans of each class, per {@link Registry}. Using a {@link ClassValue} keeps the plans from preventing
+     * classes (and their class loaders) from being unloaded.
+     */
+    private static final ClassValue<Map<Registry, StorablePlan>> PLANS = new ClassValue<Map<Registry, StorablePlan>>() {
 
         @Override
-        public String toString() {
-            return NullHelper.notnullJ(callback.toString(), "Method#toString");
+        protected Map<Registry, StorablePlan> computeValue(@Nullable Class<?> type) {
+            return new ConcurrentHashMap<>();
         }
-    }
+    };
 
     public static final @Nonnull String NULL_POSTFIX = "-";
     public static final @Nonnull String EMPTY_POSTFIX = "+";
     public static final @Nonnull String SUPERCLASS_KEY = "__superclass";
-    private final @Nonnull Map<Class<?>, List<Field>> fieldCache = new HashMap<>();
-    private final @Nonnull Map<Field, Set<NBTAction>> phaseCache = new HashMap<>();
-    private final @Nonnull Map<Field, List<IHandler>> fieldHandlerCache = new HashMap<>();
-    private final @Nonnull Map<Class<?>, Class<?>> superclassCache = new HashMap<>();
-    private final @Nonnull Map<Class<?>, List<IHandler>> superclassHandlerCache = new HashMap<>();
-    private final @Nonnull Map<Class<?>, ObjectFactory> factoryCache = new HashMap<>();
-    private final @Nonnull Map<Class<?>, List<AfterReadCallback>> callbackCache = new HashMap<>();
 
     private StorableEngine() {}
 
@@ -112,14 +75,14 @@ public class StorableEngine {
                                 NBTTagCompound tag, T object) throws IllegalAccessException,
                                                               InstantiationException,
                                                               NoHandlerFoundException {
-        INSTANCE.get().read_impl(registry, phase, tag, object);
+        INSTANCE.read_impl(registry, phase, tag, object);
     }
 
     public static <T> void store(Registry registry, Set<NBTAction> phase,
                                  NBTTagCompound tag, T object) throws IllegalAccessException,
                                                                InstantiationException,
                                                                NoHandlerFoundException {
-        INSTANCE.get().store_impl(registry, phase, tag, object);
+        INSTANCE.store_impl(registry, phase, tag, object);
     }
 
     public <T> void read_impl(Registry registry, Set<NBTAction> phase,
@@ -127,41 +90,38 @@ public class StorableEngine {
                                                             InstantiationException,
                                                             NoHandlerFoundException {
         Class<? extends Object> clazz = object.getClass();
-        if (!fieldCache.containsKey(clazz)) {
-            cacheHandlers(registry, clazz);
-        }
+        StorablePlan plan = getPlan(registry, clazz);
 
         Log.livetraceNBT("Reading NBT data for object ", object, " of class ", clazz, " for phase(s) ", phase,
                 " from NBT ", tag);
-        for (Field field : fieldCache.get(clazz)) {
-            if (!Collections.disjoint(phaseCache.get(field), phase)) {
-                Object fieldData = field.get(object);
-                String fieldName = field.getName();
-                if (!tag.hasKey(fieldName + NULL_POSTFIX) && fieldName != null) {
-                    for (IHandler handler : fieldHandlerCache.get(field)) {
-                        Log.livetraceNBT("Trying to read data for field ", fieldName, " with handler ", handler);
-                        Object result = handler.read(registry, phase, tag, TypeUtil.getGenericType(field), fieldName,
-                                fieldData);
-                        if (result != null) {
-                            Log.livetraceNBT("Read data for field ", fieldName, " with handler ", handler,
-                                    " yielded data: ", result);
-                            field.set(object, result);
-                            break;
-                        }
+        for (StorablePlan.FieldDescriptor descriptor : plan.getFields(phase)) {
+            String fieldName = descriptor.name;
+            if (!tag.hasKey(descriptor.nullKey)) {
+                PrimitiveAccessor primitive = descriptor.primitive;
+                if (primitive != null) {
+                    primitive.read(tag, object);
+                    continue;
+                }
+                Object fieldData = descriptor.accessor.get(object);
+                for (IHandler handler : descriptor.handlers) {
+                    Log.livetraceNBT("Trying to read data for field ", fieldName, " with handler ", handler);
+                    Object result = handler.read(registry, phase, tag, descriptor.type, fieldName, fieldData);
+                    if (result != null) {
+                        Log.livetraceNBT("Read data for field ", fieldName, " with handler ", handler,
+                                " yielded data: ", result);
+                        descriptor.accessor.set(object, result);
+                        break;
                     }
-                } else {
-                    Log.livetraceNBT("Field ", fieldName, " is set to null. NULL_POSTFIX=",
-                            tag.hasKey(fieldName + NULL_POSTFIX));
-                    field.set(object, null);
                 }
             } else {
-                Log.livetraceNBT("Field ", field.getName(), " is not part of the current phase.");
+                Log.livetraceNBT("Field ", fieldName, " is set to null.");
+                descriptor.accessor.set(object, null);
             }
         }
 
-        Class<?> superclazz = superclassCache.get(clazz);
+        Class<?> superclazz = plan.superclass;
         if (superclazz != null) {
-            for (IHandler handler : superclassHandlerCache.get(superclazz)) {
+            for (IHandler handler : plan.superclassHandlers) {
                 Log.livetraceNBT("Trying to read data for super class ", superclazz, " with handler ", handler);
                 if (handler.read(registry, phase, tag, superclazz, SUPERCLASS_KEY, object) != null) {
                     Log.livetraceNBT("Read data for super class ", superclazz, " with handler ", handler);
@@ -170,10 +130,10 @@ public class StorableEngine {
             }
         }
 
-        for (AfterReadCallback callback : callbackCache.get(clazz)) {
+        for (StorablePlan.AfterReadCallback callback : plan.callbacks) {
             try {
                 callback.apply(object);
-            } catch (IllegalArgumentException | InvocationTargetException e) {
+            } catch (Exception e) {
                 throw new RuntimeException("Failed to invoke AfterRead: " + callback, e);
             }
         }
@@ -185,37 +145,36 @@ public class StorableEngine {
                                                              InstantiationException,
                                                              NoHandlerFoundException {
         Class<? extends Object> clazz = object.getClass();
-        if (!fieldCache.containsKey(clazz)) {
-            cacheHandlers(registry, clazz);
-        }
+        StorablePlan plan = getPlan(registry, clazz);
 
         Log.livetraceNBT("Saving NBT data for object ", object, " of class ", clazz, " for phase(s) ", phase,
                 " into NBT ", tag);
-        for (Field field : fieldCache.get(clazz)) {
-            if (!Collections.disjoint(phaseCache.get(field), phase)) {
-                Object fieldData = field.get(object);
-                String fieldName = field.getName();
-                if (fieldData != null && fieldName != null) {
-                    for (IHandler handler : fieldHandlerCache.get(field)) {
-                        Log.livetraceNBT("Trying to save data for field ", fieldName, " with handler ", handler);
-                        if (handler.store(registry, phase, tag, TypeUtil.getGenericType(field), fieldName, fieldData)) {
-                            Log.livetraceNBT("Saved data for field ", fieldName, " with handler ", handler,
-                                    ". NBT now is ", tag);
-                            break;
-                        }
+        for (StorablePlan.FieldDescriptor descriptor : plan.getFields(phase)) {
+            PrimitiveAccessor primitive = descriptor.primitive;
+            if (primitive != null) {
+                primitive.store(tag, object);
+                continue;
+            }
+            Object fieldData = descriptor.accessor.get(object);
+            String fieldName = descriptor.name;
+            if (fieldData != null) {
+                for (IHandler handler : descriptor.handlers) {
+                    Log.livetraceNBT("Trying to save data for field ", fieldName, " with handler ", handler);
+                    if (handler.store(registry, phase, tag, descriptor.type, fieldName, fieldData)) {
+                        Log.livetraceNBT("Saved data for field ", fieldName, " with handler ", handler,
+                                ". NBT now is ", tag);
+                        break;
                     }
-                } else {
-                    Log.livetraceNBT("Field ", fieldName, " is null. Setting NULL_POSTFIX.");
-                    tag.setBoolean(fieldName + NULL_POSTFIX, true);
                 }
             } else {
-                Log.livetraceNBT("Field ", field.getName(), " is not part of the current phase.");
+                Log.livetraceNBT("Field ", fieldName, " is null. Setting NULL_POSTFIX.");
+                tag.setBoolean(descriptor.nullKey, true);
             }
         }
 
-        Class<?> superclazz = superclassCache.get(clazz);
+        Class<?> superclazz = plan.superclass;
         if (superclazz != null) {
-            for (IHandler handler : superclassHandlerCache.get(superclazz)) {
+            for (IHandler handler : plan.superclassHandlers) {
                 Log.livetraceNBT("Trying to save data for super class ", superclazz, " with handler ", handler);
                 if (handler.store(registry, phase, tag, superclazz, SUPERCLASS_KEY, object)) {
                     Log.livetraceNBT("Saved data for super class ", superclazz, " with handler ", handler);
@@ -265,114 +224,23 @@ public class StorableEngine {
         }
     }
 
-    private void cacheHandlers(Registry registry, Class<?> clazz) throws IllegalAccessException,
-                                                                  InstantiationException,
-                                                                  NoHandlerFoundException {
-        final ArrayList<Field> fieldList = new ArrayList<>();
-        for (Field field : clazz.getDeclaredFields()) {
-            Store annotation = field.getAnnotation(Store.class);
-            if (annotation != null) {
-                ArrayList<IHandler> handlerList = new ArrayList<>();
-                String fieldName = field.getName();
-                if (fieldName != null) {
-                    Type fieldType = NullHelper.notnullJ(field.getGenericType(), "Field#getGenericType");
-                    Class<? extends IHandler> handlerClass = annotation.handler();
-                    if (handlerClass != NullHandler.class) {
-                        IHandler handler = handlerClass.newInstance().getHandler(registry, fieldType);
-                        if (handler != null) {
-                            handlerList.add(handler);
-                        } else {
-                            throw new NoHandlerFoundException("Handler specified in annotation on " + field +
-                                    " does not apply to " + fieldType + ".");
-                        }
-                    }
-                    handlerList.addAll(registry.findHandlers(fieldType));
-                    if (handlerList.isEmpty()) {
-                        throw new NoHandlerFoundException(field, clazz);
-                    }
-                    EnumSet<NBTAction> enumSet = EnumSet.noneOf(NBTAction.class);
-                    enumSet.addAll(Arrays.asList(annotation.value()));
-                    phaseCache.put(field, enumSet);
-                    field.setAccessible(true);
-                    fieldList.add(field);
-                    fieldHandlerCache.put(field, handlerList);
-                }
-            }
-        }
-
-        // Find factory method
-        for (Method method : clazz.getDeclaredMethods()) {
-            if (method.isAnnotationPresent(Factory.class)) {
-                Preconditions.checkArgument(!factoryCache.containsKey(clazz),
-                        "Cannot have multiple factory methods on class", method);
-                Preconditions.checkArgument(clazz.isAssignableFrom(method.getReturnType()),
-                        "Factory method return type must be assignable to the owner type", method);
-                Preconditions.checkArgument(method.getParameterCount() == 0, "Factory method cannot take parameters",
-                        method);
-                method.setAccessible(true);
-                factoryCache.put(clazz, () -> method.invoke(null));
-            }
-        }
-
-        // Find factory constructor
-        try {
-            Constructor<?> ctor = clazz.getDeclaredConstructor();
-            boolean hasAnnotation = ctor.isAnnotationPresent(Factory.class);
-            if (Modifier.isPublic(ctor.getModifiers()) || hasAnnotation) {
-                if (!factoryCache.containsKey(clazz)) {
-                    ctor.setAccessible(true);
-                    factoryCache.put(clazz, ctor::newInstance);
-                } else if (hasAnnotation) {
-                    throw new IllegalArgumentException(
-                            "Cannot have a Factory constructor and a Factory method in the same class (" + clazz + ")");
-                }
-            }
-        } catch (NoSuchMethodException | SecurityException ignored) {}
-
-        // Give helpful error if constructor is mis-annotated
-        for (Constructor<?> ctor : clazz.getDeclaredConstructors()) {
-            if (ctor.isAnnotationPresent(Factory.class)) {
-                Preconditions.checkArgument(ctor.getParameterCount() == 0, "Factory constructor cannot take parameters",
-                        ctor);
-            }
-        }
-
-        Class<?> superclazz = clazz.getSuperclass();
-        if (superclazz != null) {
-            Storable annotation = superclazz.getAnnotation(Storable.class);
-            if (annotation != null) {
-                if (annotation.handler() == HandleStorable.class) {
-                    if (!fieldCache.containsKey(superclazz)) {
-                        cacheHandlers(registry, superclazz);
-                    }
-                    fieldList.addAll(fieldCache.get(superclazz));
-                } else {
-                    superclassCache.put(clazz, superclazz);
-                    if (!superclassCache.containsKey(superclazz)) {
-                        superclassHandlerCache.put(superclazz, Arrays.asList(annotation.handler().newInstance()));
-                    }
-                }
-            } else {
-                List<IHandler> handlers = registry.findHandlers(superclazz);
-                if (!handlers.isEmpty()) {
-                    superclassCache.put(clazz, superclazz);
-                    if (!superclassCache.containsKey(superclazz)) {
-                        superclassHandlerCache.put(superclazz, handlers);
-                    }
-                }
-            }
-        }
-
-        // Find callback methods
-        List<AfterReadCallback> callbacks = new ArrayList<>();
-        for (Method m : clazz.getDeclaredMethods()) {
-            if (m.isAnnotationPresent(AfterRead.class)) {
-                callbacks.add(new AfterReadCallback(m));
+    /**
+     * Returns the plan for the given class and registry, building it if needed. Plans are immutable; if two threads
+     * build the same plan at the same time, both get the one that was published first.
+     */
+    static StorablePlan getPlan(Registry registry, Class<?> clazz) throws IllegalAccessException,
+                                                                   InstantiationException,
+                                                                   NoHandlerFoundException {
+        Map<Registry, StorablePlan> plans = NullHelper.notnullJ(PLANS.get(clazz), "ClassValue#get");
+        StorablePlan plan = plans.get(registry);
+        if (plan == null) {
+            plan = new StorablePlan(registry, clazz);
+            StorablePlan existing = plans.putIfAbsent(registry, plan);
+            if (existing != null) {
+                plan = existing;
             }
         }
-        callbackCache.put(clazz, callbacks);
-
-        fieldCache.put(clazz, fieldList);
+        return plan;
     }
 
     public Object instantiate_impl(Registry registry, Type type) throws IllegalArgumentException,
@@ -380,19 +248,16 @@ public class StorableEngine {
                                                                  InstantiationException,
                                                                  NoHandlerFoundException {
         Class<?> clazz = TypeUtil.toClass(type);
-        if (!fieldCache.containsKey(clazz)) {
-            cacheHandlers(registry, clazz);
-        }
-        if (factoryCache.containsKey(clazz)) {
-            ObjectFactory factory = factoryCache.get(clazz);
+        Supplier<?> factory = getPlan(registry, clazz).factory;
+        if (factory != null) {
+            Object result;
             try {
-                Object result = factory.get();
-                Preconditions.checkNotNull(result, "Factory methods cannot return null", clazz);
-                return result;
-            } catch (InstantiationException | IllegalAccessException | IllegalArgumentException |
-                     InvocationTargetException e) {
+                result = factory.get();
+            } catch (Exception e) {
                 throw new RuntimeException("Failed to invoke factory method or constructor on " + clazz, e);
             }
+            Preconditions.checkNotNull(result, "Factory methods cannot return null", clazz);
+            return result;
         }
         throw new IllegalArgumentException("No factory found for " + clazz);
     }
@@ -401,6 +266,6 @@ public class StorableEngine {
                                                                   IllegalAccessException,
                                                                   InstantiationException,
                                                                   NoHandlerFoundException {
-        return (T) INSTANCE.get().instantiate_impl(registry, type);
+        return (T) INSTANCE.instantiate_impl(registry, type);
     }
 }
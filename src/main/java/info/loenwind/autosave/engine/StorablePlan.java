@@ -0,0 +1,240 @@
+package info.loenwind.autosave.engine;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.annotations.AfterRead;
+import info.loenwind.autosave.annotations.Factory;
+import info.loenwind.autosave.annotations.Storable;
+import info.loenwind.autosave.annotations.Store;
+import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.internal.HandleStorable;
+import info.loenwind.autosave.handlers.internal.NullHandler;
+import info.loenwind.autosave.util.AnnotationUtil;
+import info.loenwind.autosave.util.LambdaUtil;
+import info.loenwind.autosave.util.NBTAction;
+import info.loenwind.autosave.util.NullHelper;
+import info.loenwind.autosave.util.TypeUtil;
+
+/**
+ * The immutable serialization plan of one class for one {@link Registry}.
+ * <p>
+ * Plans are built once by {@link StorableEngine} and then shared by all threads. They contain everything the engine
+ * needs to (re-)store an object: the {@link Store} fields with their phases and handlers, the handlers of a
+ * non-{@link Storable} superclass, the factory to create new instances and the {@link AfterRead} callbacks.
+ */
+@SuppressWarnings("rawtypes")
+final class StorablePlan {
+
+    static final class AfterReadCallback {
+
+        private final Method callback;
+        private final Consumer<Object> invoker;
+
+        AfterReadCallback(Method m) throws IllegalArgumentException, IllegalAccessException {
+            Preconditions.checkArgument(m.getReturnType() == void.class, "AfterRead methods cannot return a value", m);
+            Preconditions.checkArgument(m.getParameterCount() == 0, "AfterRead methods cannot take parameters", m);
+
+            this.callback = m;
+            this.invoker = LambdaUtil.consumer(m);
+        }
+
+        /**
+         * Calls the callback. Exceptions thrown by the callback are passed through, including checked ones.
+         */
+        public void apply(Object inst) {
+            invoker.accept(inst);
+        }
+
+        @Override
+        public String toString() {
+            return NullHelper.notnullJ(callback.toString(), "Method#toString");
+        }
+    }
+
+    /**
+     * Everything needed to process one {@link Store} field, resolved when the plan is built.
+     */
+    static final class FieldDescriptor {
+
+        final @Nonnull FieldAccessor accessor;
+        final @Nonnull String name;
+        final @Nonnull String nullKey;
+        final @Nonnull Type type;
+        final @Nonnull IHandler[] handlers;
+        final int phaseMask;
+        /**
+         * Set if the field is a primitive that is handled by the built-in handler, see {@link PrimitiveAccessor}.
+         */
+        final @Nullable PrimitiveAccessor primitive;
+
+        FieldDescriptor(Field field, String name, Type type, List<IHandler> handlers, int phaseMask) {
+            this.accessor = FieldAccessor.of(field);
+            this.primitive = PrimitiveAccessor.of(field, name, NullHelper.notnullJ(handlers.get(0), "List#get"));
+            this.name = name;
+            this.nullKey = name + StorableEngine.NULL_POSTFIX;
+            this.type = type;
+            this.handlers = NullHelper.notnullJ(handlers.toArray(new IHandler[handlers.size()]), "List#toArray");
+            this.phaseMask = phaseMask;
+        }
+
+        @Override
+        public String toString() {
+            return accessor.toString();
+        }
+    }
+
+    final @Nonnull Class<?> clazz;
+    final @Nonnull List<FieldDescriptor> fields;
+    /**
+     * The fields to process for each phase combination, indexed by {@link NBTAction#toMask(Set)}.
+     */
+    private final @Nonnull FieldDescriptor[][] fieldsByPhase;
+    final @Nullable Class<?> superclass;
+    final @Nonnull List<IHandler> superclassHandlers;
+    final @Nullable Supplier<?> factory;
+    final @Nonnull List<AfterReadCallback> callbacks;
+
+    StorablePlan(Registry registry, Class<?> clazz) throws IllegalAccessException, InstantiationException,
+                                                     NoHandlerFoundException {
+        this.clazz = clazz;
+        final List<FieldDescriptor> fieldList = new ArrayList<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            Store annotation = field.getAnnotation(Store.class);
+            if (annotation != null) {
+                ArrayList<IHandler> handlerList = new ArrayList<>();
+                String fieldName = field.getName();
+                if (fieldName != null) {
+                    Type fieldType = TypeUtil.canonicalize(TypeUtil.getGenericType(field));
+                    Class<? extends IHandler> handlerClass = annotation.handler();
+                    if (handlerClass != NullHandler.class) {
+                        IHandler handler = AnnotationUtil.getHandlerInstance(handlerClass).getHandler(registry,
+                                fieldType);
+                        if (handler != null) {
+                            handlerList.add(handler);
+                        } else {
+                            throw new NoHandlerFoundException("Handler specified in annotation on " + field +
+                                    " does not apply to " + fieldType + ".");
+                        }
+                    }
+                    handlerList.addAll(registry.findHandlers(fieldType));
+                    if (handlerList.isEmpty()) {
+                        throw new NoHandlerFoundException(field, clazz);
+                    }
+                    EnumSet<NBTAction> enumSet = EnumSet.noneOf(NBTAction.class);
+                    enumSet.addAll(Arrays.asList(annotation.value()));
+                    fieldList.add(new FieldDescriptor(field, fieldName, fieldType, handlerList,
+                            NBTAction.toMask(enumSet)));
+                }
+            }
+        }
+
+        // Find factory method
+        Supplier<?> factoryFound = null;
+        for (Method method : clazz.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(Factory.class)) {
+                Preconditions.checkArgument(factoryFound == null,
+                        "Cannot have multiple factory methods on class", method);
+                Preconditions.checkArgument(clazz.isAssignableFrom(method.getReturnType()),
+                        "Factory method return type must be assignable to the owner type", method);
+                Preconditions.checkArgument(method.getParameterCount() == 0, "Factory method cannot take parameters",
+                        method);
+                factoryFound = LambdaUtil.supplier(method);
+            }
+        }
+
+        // Find factory constructor
+        try {
+            Constructor<?> ctor = clazz.getDeclaredConstructor();
+            boolean hasAnnotation = ctor.isAnnotationPresent(Factory.class);
+            if (Modifier.isPublic(ctor.getModifiers()) || hasAnnotation) {
+                if (factoryFound == null) {
+                    factoryFound = LambdaUtil.supplier(ctor);
+                } else if (hasAnnotation) {
+                    throw new IllegalArgumentException(
+                            "Cannot have a Factory constructor and a Factory method in the same class (" + clazz + ")");
+                }
+            }
+        } catch (NoSuchMethodException | SecurityException ignored) {}
+
+        // Give helpful error if constructor is mis-annotated
+        for (Constructor<?> ctor : clazz.getDeclaredConstructors()) {
+            if (ctor.isAnnotationPresent(Factory.class)) {
+                Preconditions.checkArgument(ctor.getParameterCount() == 0, "Factory constructor cannot take parameters",
+                        ctor);
+            }
+        }
+
+        Class<?> superclassFound = null;
+        List<IHandler> superclassHandlerList = Collections.emptyList();
+        Class<?> superclazz = clazz.getSuperclass();
+        if (superclazz != null) {
+            Storable annotation = AnnotationUtil.getStorable(superclazz);
+            if (annotation != null) {
+                if (annotation.handler() == HandleStorable.class) {
+                    StorablePlan superPlan = StorableEngine.getPlan(registry, superclazz);
+                    fieldList.addAll(superPlan.fields);
+                } else {
+                    superclassFound = superclazz;
+                    superclassHandlerList = Arrays.asList(AnnotationUtil.getHandlerInstance(annotation.handler()));
+                }
+            } else {
+                List<IHandler> handlers = registry.findHandlers(superclazz);
+                if (!handlers.isEmpty()) {
+                    superclassFound = superclazz;
+                    superclassHandlerList = handlers;
+                }
+            }
+        }
+
+        // Find callback methods
+        List<AfterReadCallback> callbackList = new ArrayList<>();
+        for (Method m : clazz.getDeclaredMethods()) {
+            if (m.isAnnotationPresent(AfterRead.class)) {
+                callbackList.add(new AfterReadCallback(m));
+            }
+        }
+
+        this.fields = NullHelper.notnullJ(Collections.unmodifiableList(fieldList), "Collections#unmodifiableList");
+        this.fieldsByPhase = new FieldDescriptor[NBTAction.COMBINATIONS][];
+        for (int mask = 0; mask < NBTAction.COMBINATIONS; mask++) {
+            List<FieldDescriptor> table = new ArrayList<>();
+            for (FieldDescriptor descriptor : fieldList) {
+                if ((descriptor.phaseMask & mask) != 0) {
+                    table.add(descriptor);
+                }
+            }
+            fieldsByPhase[mask] = table.toArray(new FieldDescriptor[table.size()]);
+        }
+        this.superclass = superclassFound;
+        this.superclassHandlers = NullHelper.notnullJ(superclassHandlerList, "Arrays#asList");
+        this.factory = factoryFound;
+        this.callbacks = NullHelper.notnullJ(Collections.unmodifiableList(callbackList),
+                "Collections#unmodifiableList");
+    }
+
+    /**
+     * @return The fields that take part in (at least one of) the given phases, in declaration order.
+     */
+    FieldDescriptor[] getFields(Set<NBTAction> phase) {
+        return NullHelper.notnullJ(fieldsByPhase[NBTAction.toMask(phase)], "StorablePlan#fieldsByPhase");
+    }
+}
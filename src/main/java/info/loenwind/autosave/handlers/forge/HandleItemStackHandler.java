@@ -0,0 +1,57 @@
+package info.loenwind.autosave.handlers.forge;
+
+import java.lang.reflect.Type;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.items.ItemStackHandler;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.util.InventoryList;
+import info.loenwind.autosave.util.NBTAction;
+import info.loenwind.autosave.util.TypeUtil;
+
+/**
+ * Handler for {@link ItemStackHandler}s. They are stored with {@link ItemStackHandler#serializeNBT()} (which writes only
+ * the non-empty slots, see {@link InventoryList}) and read with {@link ItemStackHandler#deserializeNBT(NBTTagCompound)},
+ * so subclasses that add their own data keep it and get their usual <code>onLoad()</code> call.
+ * <p>
+ * Subclasses need a public no-args constructor to be read into a <code>null</code> field.
+ */
+public class HandleItemStackHandler implements IHandler<ItemStackHandler> {
+
+    public HandleItemStackHandler() {}
+
+    @Override
+    public Class<?> getRootType() {
+        return ItemStackHandler.class;
+    }
+
+    @Override
+    public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                         ItemStackHandler object) throws IllegalArgumentException, IllegalAccessException,
+                                                  InstantiationException, NoHandlerFoundException {
+        nbt.setTag(name, object.serializeNBT());
+        return true;
+    }
+
+    @Override
+    public @Nullable ItemStackHandler read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type,
+                                           String name, @Nullable ItemStackHandler object)
+                                                                                           throws IllegalArgumentException,
+                                                                                           IllegalAccessException,
+                                                                                           InstantiationException,
+                                                                                           NoHandlerFoundException {
+        if (nbt.hasKey(name)) {
+            if (object == null) {
+                object = (ItemStackHandler) TypeUtil.toClass(type).newInstance();
+            }
+            object.deserializeNBT(nbt.getCompoundTag(name));
+        }
+        return object;
+    }
+}
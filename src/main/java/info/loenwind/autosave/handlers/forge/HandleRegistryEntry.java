@@ -1,13 +1,17 @@
 package info.loenwind.autosave.handlers.forge;
 
 import java.lang.reflect.Type;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.fml.common.registry.GameRegistry;
+import net.minecraftforge.registries.ForgeRegistry;
 import net.minecraftforge.registries.IForgeRegistry;
 import net.minecraftforge.registries.IForgeRegistryEntry;
 import net.minecraftforge.registries.RegistryManager;
@@ -16,18 +20,61 @@ import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
 import info.loenwind.autosave.handlers.IHandler;
 import info.loenwind.autosave.util.NBTAction;
+import info.loenwind.autosave.util.TypeUtil;
 
-@SuppressWarnings("rawtypes")
+/**
+ * Handler for Forge registry entries (e.g. {@link net.minecraft.item.Item}s and {@link net.minecraft.block.Block}s).
+ * <p>
+ * Entries are stored by their registry name, or by their numeric id if the data is only synced to the client (ids are
+ * the same on client and server while connected). The name of the registry is stored in a second tag, unless the
+ * declared type of the field already determines the registry.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
 public class HandleRegistryEntry implements IHandler<IForgeRegistryEntry> {
 
     // Usually handler must save into the name, but we cheat and use a second nbt key here
     private static final String REGISTRY = "*R";
 
+    /**
+     * Registries by the type of their entries. Only found registries are cached, as a registry may not have been
+     * created yet when it is first looked for.
+     */
+    private static final Map<Class<?>, IForgeRegistry> BY_TYPE = new ConcurrentHashMap<>();
+    private static final Map<String, IForgeRegistry> BY_NAME = new ConcurrentHashMap<>();
+
     @Override
     public Class<?> getRootType() {
         return IForgeRegistryEntry.class;
     }
 
+    /**
+     * Returns the registry that holds entries of the given class or its superclasses, or <code>null</code> if there is
+     * none.
+     */
+    private static @Nullable IForgeRegistry findRegistry(Class<?> clazz) {
+        IForgeRegistry result = BY_TYPE.get(clazz);
+        if (result == null) {
+            for (Class<?> c = clazz; c != null && result == null; c = c.getSuperclass()) {
+                result = GameRegistry.findRegistry((Class) c);
+            }
+            if (result != null) {
+                BY_TYPE.put(clazz, result);
+            }
+        }
+        return result;
+    }
+
+    private static @Nullable IForgeRegistry findRegistry(String name) {
+        IForgeRegistry result = BY_NAME.get(name);
+        if (result == null) {
+            result = RegistryManager.ACTIVE.getRegistry(new ResourceLocation(name));
+            if (result != null) {
+                BY_NAME.put(name, result);
+            }
+        }
+        return result;
+    }
+
     @Override
     public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
                          IForgeRegistryEntry object)
@@ -37,13 +84,18 @@ public class HandleRegistryEntry implements IHandler<IForgeRegistryEntry> {
         if (loc == null) {
             throw new IllegalArgumentException("Registry entry must be registered to be stored: " + object);
         }
-        nbt.setString(name, loc.toString());
-        @SuppressWarnings("unchecked")
-        final IForgeRegistry<?> forgeRegistry = GameRegistry.findRegistry(object.getRegistryType());
+        final IForgeRegistry<?> forgeRegistry = findRegistry(object.getRegistryType());
         if (forgeRegistry == null) {
             throw new IllegalArgumentException("Registry entry's registry must be registered to be stored: " + object);
         }
-        nbt.setString(name + REGISTRY, RegistryManager.ACTIVE.getName(forgeRegistry).toString());
+        if (NBTAction.isClientOnly(phase) && forgeRegistry instanceof ForgeRegistry) {
+            nbt.setInteger(name, ((ForgeRegistry) forgeRegistry).getID(object));
+        } else {
+            nbt.setString(name, loc.toString());
+        }
+        if (findRegistry(TypeUtil.toClass(type)) != forgeRegistry) {
+            nbt.setString(name + REGISTRY, RegistryManager.ACTIVE.getName(forgeRegistry).toString());
+        }
         return true;
     }
 
@@ -55,17 +107,29 @@ public class HandleRegistryEntry implements IHandler<IForgeRegistryEntry> {
                                                                           IllegalAccessException,
                                                                           InstantiationException,
                                                                           NoHandlerFoundException {
-        if (nbt.hasKey(name) && nbt.hasKey(name + REGISTRY)) {
-            final ResourceLocation registryName = new ResourceLocation(nbt.getString(name + REGISTRY));
-            IForgeRegistry forgeRegistry = RegistryManager.ACTIVE.getRegistry(registryName);
+        if (!nbt.hasKey(name)) {
+            return object;
+        }
+        IForgeRegistry forgeRegistry;
+        if (nbt.hasKey(name + REGISTRY)) {
+            final String registryName = nbt.getString(name + REGISTRY);
+            forgeRegistry = findRegistry(registryName);
             if (forgeRegistry == null) {
                 throw new IllegalArgumentException(
                         "Registry entry's registry must be registered to be read: " + registryName);
             }
-            ResourceLocation rl = new ResourceLocation(nbt.getString(name));
-            return forgeRegistry.getValue(rl);
         } else {
+            forgeRegistry = findRegistry(TypeUtil.toClass(type));
+            if (forgeRegistry == null) {
+                return object;
+            }
+        }
+        if (nbt.hasKey(name, Constants.NBT.TAG_INT)) {
+            if (forgeRegistry instanceof ForgeRegistry) {
+                return ((ForgeRegistry) forgeRegistry).getValue(nbt.getInteger(name));
+            }
             return object;
         }
+        return forgeRegistry.getValue(new ResourceLocation(nbt.getString(name)));
     }
 }
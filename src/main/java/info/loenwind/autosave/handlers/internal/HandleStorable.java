@@ -13,6 +13,7 @@ import info.loenwind.autosave.annotations.Store;
 import info.loenwind.autosave.engine.StorableEngine;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
 import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.util.AnnotationUtil;
 import info.loenwind.autosave.util.NBTAction;
 import info.loenwind.autosave.util.NullHelper;
 import info.loenwind.autosave.util.TypeUtil;
@@ -41,7 +42,7 @@ public class HandleStorable<T> implements IHandler<T> {
     @Override
     public @Nullable IHandler<T> getHandler(Registry registry, Type type) {
         Class<?> clazz = TypeUtil.toClass(type);
-        Storable annotation = clazz.getAnnotation(Storable.class);
+        Storable annotation = AnnotationUtil.getStorable(clazz);
         return annotation != null && annotation.handler() == this.getClass() ? this : null;
     }
 
@@ -26,6 +26,11 @@ public class HandleArrayList extends HandleCollection<ArrayList> {
         return new ArrayList();
     }
 
+    @Override
+    protected ArrayList makeCollection(int size) {
+        return new ArrayList(size);
+    }
+
     @Override
     protected boolean canHandle(Type type) {
         return TypeUtil.toClass(type) == List.class || super.canHandle(type);
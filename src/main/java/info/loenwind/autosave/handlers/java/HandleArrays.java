@@ -13,6 +13,7 @@ import net.minecraft.nbt.NBTTagCompound;
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
 import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.util.ElementList;
 import info.loenwind.autosave.util.NBTAction;
 import info.loenwind.autosave.util.NullHelper;
 import info.loenwind.autosave.util.TypeUtil;
@@ -53,23 +54,46 @@ public class HandleArrays implements IHandler<Object> {
                          Object object)
                                         throws IllegalArgumentException, IllegalAccessException, InstantiationException,
                                         NoHandlerFoundException {
-        NBTTagCompound tag = new NBTTagCompound();
         int size = Array.getLength(object);
-        tag.setInteger("size", size);
+        ElementList.Builder list = new ElementList.Builder(size);
         for (int i = 0; i < size; i++) {
+            NBTTagCompound etag = list.next();
             Object elem = Array.get(object, i);
             if (elem != null) {
-                for (IHandler handler : componentHandlers) {
-                    if (handler.store(registry, phase, tag, type, String.valueOf(i), elem)) {
-                        break;
-                    }
-                }
+                storeElement(registry, phase, etag, ElementList.ELEMENT_KEY, elem);
             }
         }
-        nbt.setTag(name, tag);
+        nbt.setTag(name, list.build());
         return true;
     }
 
+    private void storeElement(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, String name,
+                              Object elem) throws IllegalArgumentException, IllegalAccessException,
+                                           InstantiationException, NoHandlerFoundException {
+        Type compType = componentType;
+        if (compType != null) {
+            for (IHandler handler : componentHandlers) {
+                if (handler.store(registry, phase, nbt, compType, name, elem)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private @Nullable Object readElement(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type compType,
+                                         String name, @Nullable Object previous) throws IllegalArgumentException,
+                                                                                 IllegalAccessException,
+                                                                                 InstantiationException,
+                                                                                 NoHandlerFoundException {
+        for (IHandler handler : componentHandlers) {
+            Object result = handler.read(registry, phase, nbt, compType, name, previous);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
     @Override
     @Nullable
     public Object read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
@@ -80,22 +104,38 @@ public class HandleArrays implements IHandler<Object> {
         if (compType == null) {
             return null;
         }
-        if (nbt.hasKey(name)) {
+        ElementList.View list = ElementList.read(nbt, name);
+        if (list != null) {
+            int size = list.size();
+            Class<?> compClass = TypeUtil.toClass(compType);
+            if (object == null || Array.getLength(object) != size) {
+                object = Array.newInstance(compClass, size);
+            }
+
+            // Existing elements are handed to the element handlers, so mutable elements are updated in place
+            for (int i = 0; i < size; i++) {
+                NBTTagCompound etag = list.get(i);
+                Object previous = Array.get(object, i);
+                Object result = etag == null ? null :
+                        readElement(registry, phase, etag, compType, ElementList.ELEMENT_KEY, previous);
+                if (result != previous && (result != null || !compClass.isPrimitive())) {
+                    Array.set(object, i, result);
+                }
+            }
+        } else if (nbt.hasKey(name)) {
+            // Legacy format
             NBTTagCompound tag = nbt.getCompoundTag(name);
             int size = tag.getInteger("size");
 
-            if (object == null) {
+            if (object == null || Array.getLength(object) != size) {
                 object = Array.newInstance(TypeUtil.toClass(compType), size);
             }
 
             for (int i = 0; i < size; i++) {
                 if (tag.hasKey(String.valueOf(i))) {
-                    for (IHandler handler : componentHandlers) {
-                        Object result = handler.read(registry, phase, tag, compType, String.valueOf(i), null);
-                        if (result != null) {
-                            Array.set(object, i, result);
-                            break;
-                        }
+                    Object result = readElement(registry, phase, tag, compType, String.valueOf(i), null);
+                    if (result != null) {
+                        Array.set(object, i, result);
                     }
                 }
             }
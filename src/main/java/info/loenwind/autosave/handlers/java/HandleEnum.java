@@ -33,8 +33,8 @@ public class HandleEnum implements IHandler<Enum<?>> {
     public @Nullable Enum<?> read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
                                   @Nullable Enum<?> object) {
         if (nbt.hasKey(name)) {
-            Enum<?>[] enumConstants = (Enum<?>[]) TypeUtil.toClass(type).getEnumConstants();
-            if (enumConstants != null) { // This should be "impossible"
+            Enum<?>[] enumConstants = TypeUtil.getEnumConstants(TypeUtil.toClass(type));
+            if (enumConstants.length > 0) { // This should be "impossible"
                 return enumConstants[MathHelper.clamp(nbt.getInteger(name), 0, enumConstants.length - 1)];
             }
         }
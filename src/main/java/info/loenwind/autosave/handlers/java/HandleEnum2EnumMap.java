@@ -8,6 +8,7 @@ import java.util.Set;
 import javax.annotation.Nullable;
 
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.common.util.Constants;
 
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
@@ -23,8 +24,9 @@ import info.loenwind.autosave.util.TypeUtil;
 /**
  * This is a specialized version of {@link HandleEnumMap}, for maps with enum values as well.
  * <p>
- * It will compress the stored data into a single long, throwing an error on construction if there are too many values
- * to do so.
+ * It will compress the stored data into a bitfield of longs (stored as an int array of <code>{ valspace, msb0, lsb0,
+ * msb1, lsb1, ... }</code>). Each value takes <code>valspace</code> bits, and as many values as fit are put into each
+ * long. Maps that fit into a single long are stored exactly as they were before multiple longs were supported.
  * 
  * @author tterrag
  *
@@ -37,6 +39,7 @@ public class HandleEnum2EnumMap<T extends Enum<T>> extends HandleMap<EnumMap<T,
 
     private final Enum[] vals;
     private final int valspace;
+    private final int valsPerWord;
 
     public HandleEnum2EnumMap() {
         super((Class<EnumMap<T, Enum>>) (Class) EnumMap.class);
@@ -44,25 +47,18 @@ public class HandleEnum2EnumMap<T extends Enum<T>> extends HandleMap<EnumMap<T,
         this.keys = (T[]) new Enum[0];
         this.vals = new Enum[0];
         this.valspace = 0;
+        this.valsPerWord = 0;
     }
 
     protected HandleEnum2EnumMap(Registry registry, Class<? extends Enum> keyClass,
                                  Class<? extends Enum> valClass) throws NoHandlerFoundException {
         super((Class<EnumMap<T, Enum>>) (Class) EnumMap.class, registry, keyClass, valClass);
         this.keyClass = (Class<T>) keyClass;
-        this.keys = (T[]) getEnumConstants(keyClass);
-        this.vals = getEnumConstants(valClass);
+        this.keys = (T[]) TypeUtil.getEnumConstants(keyClass);
+        this.vals = TypeUtil.getEnumConstants(valClass);
         // Add one to vals.length for null
         this.valspace = getValspace(vals.length);
-
-        if (keys.length * valspace > 64) {
-            throw new IllegalArgumentException(
-                    "Enums " + keyClass + " and " + valClass + " cannot be used, as they have too many combinations.");
-        }
-    }
-
-    private <E> E[] getEnumConstants(Class<E> clazz) {
-        return NullHelper.notnullJ(clazz.getEnumConstants(), "Class#getEnumConstants");
+        this.valsPerWord = 64 / valspace;
     }
 
     private int getValspace(int valCount) {
@@ -84,13 +80,7 @@ public class HandleEnum2EnumMap<T extends Enum<T>> extends HandleMap<EnumMap<T,
                 paramClasses[i] = TypeUtil
                         .toClass(NullHelper.notnullJ(types[i], "ParameterizedType#getActualTypeArguments[i]"));
             }
-            if (paramClasses.length == 2 && paramClasses[0].isEnum() && paramClasses[1].isEnum()) {
-                // Make sure we can store this, otherwise it will fall back to EnumMap handler
-                int keys = getEnumConstants(paramClasses[0]).length;
-                int vals = getEnumConstants(paramClasses[1]).length;
-                int valspace = getValspace(vals);
-                return keys * valspace <= 64;
-            }
+            return paramClasses.length == 2 && paramClasses[0].isEnum() && paramClasses[1].isEnum();
         }
         return false;
     }
@@ -105,16 +95,21 @@ public class HandleEnum2EnumMap<T extends Enum<T>> extends HandleMap<EnumMap<T,
     public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
                          EnumMap<T, Enum> object) throws IllegalArgumentException, IllegalAccessException,
                                                   InstantiationException, NoHandlerFoundException {
-        long value = 0;
-        for (T key : keys) {
-            // 0 is null, all ordinal values are shifted up by 1
-            long subvalue = 0;
-            if (object.containsKey(key)) {
-                subvalue = object.get(key).ordinal() + 1;
+        int words = (keys.length + valsPerWord - 1) / valsPerWord;
+        int[] raw = new int[1 + Math.max(words, 1) * 2];
+        raw[0] = valspace;
+        for (int word = 0; word < words; word++) {
+            long value = 0;
+            for (int i = word * valsPerWord; i < keys.length && i < (word + 1) * valsPerWord; i++) {
+                // 0 is null, all ordinal values are shifted up by 1
+                Enum val = object.get(keys[i]);
+                long subvalue = val != null ? val.ordinal() + 1 : 0;
+                value = value | (subvalue << ((i % valsPerWord) * valspace));
             }
-            value = value | (subvalue << (key.ordinal() * valspace));
+            raw[1 + word * 2] = BitUtil.getLongMSB(value);
+            raw[2 + word * 2] = BitUtil.getLongLSB(value);
         }
-        nbt.setIntArray(name, new int[] { valspace, BitUtil.getLongMSB(value), BitUtil.getLongLSB(value) });
+        nbt.setIntArray(name, raw);
         return true;
     }
 
@@ -125,29 +120,49 @@ public class HandleEnum2EnumMap<T extends Enum<T>> extends HandleMap<EnumMap<T,
                                                                                   IllegalAccessException,
                                                                                   InstantiationException,
                                                                                   NoHandlerFoundException {
-        if (nbt.hasKey(name)) {
+        switch (nbt.getTagId(name)) {
+        case Constants.NBT.TAG_END:
+            return object;
+        case Constants.NBT.TAG_COMPOUND:
+            // Written by HandleEnumMap, as this handler used to only take maps that fit into a single long
+            return null;
+        case Constants.NBT.TAG_LONG: {
+            // Convert old data
             if (object == null) {
                 object = createMap();
             }
-            int[] raw = nbt.getIntArray(name);
-            if (raw.length == 0) {
-                // Convert old data
-                long value = nbt.getLong(name);
-                for (T key : keys) {
-                    long subvalue = (value >>> (key.ordinal() * 8)) & 0xFF;
-                    if (subvalue > 0 && subvalue < vals.length) {
-                        object.put(key, vals[(int) subvalue]);
-                    } else {
-                        object.remove(key);
-                    }
+            long value = nbt.getLong(name);
+            for (T key : keys) {
+                long subvalue = (value >>> (key.ordinal() * 8)) & 0xFF;
+                if (subvalue > 0 && subvalue < vals.length) {
+                    object.put(key, vals[(int) subvalue]);
+                } else {
+                    object.remove(key);
                 }
+            }
+            return object;
+        }
+        case Constants.NBT.TAG_INT_ARRAY: {
+            if (object == null) {
+                object = createMap();
+            }
+            int[] raw = nbt.getIntArray(name);
+            int space = raw.length > 0 ? raw[0] : 0;
+            if (space <= 0 || space >= 32 || raw.length < 3) {
+                Log.error("Found invalid map data when parsing enum2enum map! Data: ", nbt, "   Type: ", type);
                 return object;
             }
-            int space = raw[0];
-            int mask = (1 << space) - 1;
-            long value = BitUtil.longFromInts(raw[1], raw[2]);
+            long mask = (1L << space) - 1;
+            int perWord = 64 / space;
             for (T key : keys) {
-                long subvalue = (value >>> (key.ordinal() * space)) & mask;
+                int word = key.ordinal() / perWord;
+                if (2 + word * 2 >= raw.length) {
+                    // Written when the key enum had fewer values
+                    object.remove(key);
+                    continue;
+                }
+                long value = BitUtil.longFromInts(raw[1 + word * 2], raw[2 + word * 2]);
+                long subvalue = (value >>> ((key.ordinal() % perWord) * space)) & mask;
                 if (subvalue > 0 && subvalue <= vals.length) {
                     object.put(key, vals[(int) subvalue - 1]);
                 } else if (subvalue == 0) {
@@ -157,7 +172,11 @@ public class HandleEnum2EnumMap<T extends Enum<T>> extends HandleMap<EnumMap<T,
                     Thread.dumpStack();
                 }
             }
+            return object;
+        }
+        default:
+            Log.error("Found invalid map data when parsing enum2enum map! Data: ", nbt, "   Type: ", type);
+            return object;
         }
-        return object;
     }
 }
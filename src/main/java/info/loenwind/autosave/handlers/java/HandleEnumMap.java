@@ -7,6 +7,7 @@ import java.util.Set;
 import javax.annotation.Nullable;
 
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.common.util.Constants;
 
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.engine.StorableEngine;
@@ -18,6 +19,10 @@ import info.loenwind.autosave.util.NonnullType;
 import info.loenwind.autosave.util.NullHelper;
 import info.loenwind.autosave.util.TypeUtil;
 
+/**
+ * Handler for {@link EnumMap}s. They are stored like other maps with packable keys, with the ordinals as the key
+ * column (see {@link HandleMap}). The compound with one tag per ordinal they were stored in before is still read.
+ */
 @SuppressWarnings({ "unchecked", "rawtypes" })
 public class HandleEnumMap<K extends Enum<K>> extends HandleMap<EnumMap<K, ?>> {
 
@@ -33,7 +38,7 @@ public class HandleEnumMap<K extends Enum<K>> extends HandleMap<EnumMap<K, ?>> {
     protected HandleEnumMap(Registry registry, Class<K> enumClass, Type valueClass) throws NoHandlerFoundException {
         super((Class<EnumMap<K, ?>>) (Class) EnumMap.class, registry, enumClass, valueClass);
         this.enumClass = enumClass;
-        this.enumValues = NullHelper.notnullJ(enumClass.getEnumConstants(), "Class#getEnumConstants");
+        this.enumValues = (K[]) TypeUtil.getEnumConstants(enumClass);
     }
 
     @Override
@@ -42,24 +47,6 @@ public class HandleEnumMap<K extends Enum<K>> extends HandleMap<EnumMap<K, ?>> {
         return new HandleEnumMap<K>(registry, (Class<K>) TypeUtil.toClass(types[0]), types[1]);
     }
 
-    @Override
-    public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
-                         EnumMap<K, ?> object) throws IllegalArgumentException, IllegalAccessException,
-                                               InstantiationException, NoHandlerFoundException {
-        NBTTagCompound tag = new NBTTagCompound();
-        for (K key : enumValues) {
-            Object val = object.get(key);
-            String keystr = NullHelper.notnullJ(Integer.toString(key.ordinal()), "Integer.toString is null");
-            if (val != null) {
-                storeRecursive(1, registry, phase, tag, keystr, val);
-            } else {
-                tag.setBoolean(keystr + StorableEngine.NULL_POSTFIX, true);
-            }
-        }
-        nbt.setTag(name, tag);
-        return true;
-    }
-
     @Override
     public @Nullable EnumMap<K, ?> read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type,
                                         String name, @Nullable EnumMap<K, ?> object)
@@ -67,16 +54,29 @@ public class HandleEnumMap<K extends Enum<K>> extends HandleMap<EnumMap<K, ?>> {
                                                                                      IllegalAccessException,
                                                                                      InstantiationException,
                                                                                      NoHandlerFoundException {
-        if (nbt.hasKey(name)) {
-            if (object == null) {
-                object = createMap();
-            }
-            NBTTagCompound tag = nbt.getCompoundTag(name);
-            for (K key : enumValues) {
-                String keystr = NullHelper.notnullJ(Integer.toString(key.ordinal()), "Integer.toString is null");
-                if (!tag.getBoolean(keystr + StorableEngine.NULL_POSTFIX)) {
-                    object.put(key, readRecursive(1, registry, phase, tag, keystr, null));
-                }
+        if (nbt.hasKey(name, Constants.NBT.TAG_COMPOUND) && !isColumns(nbt.getCompoundTag(name))) {
+            return readLegacy(registry, phase, nbt.getCompoundTag(name), object);
+        }
+        return super.read(registry, phase, nbt, type, name, object);
+    }
+
+    /**
+     * Reads the format enum maps were stored in before, a compound with one tag per ordinal.
+     */
+    private EnumMap<K, ?> readLegacy(Registry registry, Set<NBTAction> phase, NBTTagCompound tag,
+                                     @Nullable EnumMap<K, ?> object) throws IllegalArgumentException,
+                                                                     IllegalAccessException, InstantiationException,
+                                                                     NoHandlerFoundException {
+        if (object == null) {
+            object = createMap();
+        }
+        for (K key : enumValues) {
+            String keystr = NullHelper.notnullJ(Integer.toString(key.ordinal()), "Integer.toString is null");
+            if (!tag.getBoolean(keystr + StorableEngine.NULL_POSTFIX)) {
+                // Existing values are updated in place
+                ((EnumMap) object).put(key, readRecursive(1, registry, phase, tag, keystr, object.get(key)));
+            } else {
+                object.remove(key);
             }
         }
         return object;
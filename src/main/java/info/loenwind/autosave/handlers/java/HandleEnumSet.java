@@ -2,26 +2,45 @@ package info.loenwind.autosave.handlers.java;
 
 import java.lang.reflect.Type;
 import java.util.EnumSet;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.common.util.Constants;
 
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
 import info.loenwind.autosave.handlers.IHandler;
 import info.loenwind.autosave.handlers.java.util.HandleCollection;
+import info.loenwind.autosave.util.LongArrayUtil;
+import info.loenwind.autosave.util.NBTAction;
 import info.loenwind.autosave.util.NullHelper;
 import info.loenwind.autosave.util.TypeUtil;
 
-@SuppressWarnings("rawtypes")
+/**
+ * Handler for {@link EnumSet}s.
+ * <p>
+ * The set is stored as a bitmask of the ordinals of its elements. That is a long for enums with up to 64 constants,
+ * and a long array with one long per 64 constants for larger enums. Sets in the format of other collections can still
+ * be read.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
 public class HandleEnumSet extends HandleCollection<EnumSet> {
 
+    private final Enum[] enumValues;
+
     public HandleEnumSet() {
         super(EnumSet.class);
+        this.enumValues = new Enum[0];
     }
 
     protected HandleEnumSet(Registry registry, Type... types) throws NoHandlerFoundException {
         super(EnumSet.class, registry, types);
+        this.enumValues = types[0] instanceof Class ? TypeUtil.getEnumConstants((Class<?>) types[0]) : new Enum[0];
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     protected EnumSet makeCollection() {
         return NullHelper.notnullJ(EnumSet.noneOf((Class<Enum>) TypeUtil.toClass(types[0])), "EnumSet.noneOf");
@@ -31,4 +50,72 @@ public class HandleEnumSet extends HandleCollection<EnumSet> {
     protected IHandler<? extends EnumSet> create(Registry registry, Type... types) throws NoHandlerFoundException {
         return new HandleEnumSet(registry, types);
     }
+
+    @Override
+    public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                         EnumSet object) throws IllegalArgumentException, IllegalAccessException,
+                                         InstantiationException, NoHandlerFoundException {
+        if (enumValues.length == 0) {
+            return super.store(registry, phase, nbt, type, name, object);
+        }
+        if (enumValues.length <= 64) {
+            long mask = 0;
+            for (Enum value : (Set<Enum>) object) {
+                mask |= 1L << value.ordinal();
+            }
+            nbt.setLong(name, mask);
+        } else {
+            long[] mask = new long[(enumValues.length + 63) >>> 6];
+            for (Enum value : (Set<Enum>) object) {
+                mask[value.ordinal() >>> 6] |= 1L << value.ordinal();
+            }
+            LongArrayUtil.set(nbt, name, mask);
+        }
+        return true;
+    }
+
+    @Override
+    public @Nullable EnumSet read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                                  @Nullable EnumSet object) throws IllegalArgumentException, IllegalAccessException,
+                                                            InstantiationException, NoHandlerFoundException {
+        if (enumValues.length > 0) {
+            NBTBase tag = nbt.getTag(name);
+            if (tag != null && tag.getId() == Constants.NBT.TAG_LONG) {
+                object = prepare(object);
+                addAll(object, nbt.getLong(name), 0);
+                return object;
+            }
+            long[] mask = LongArrayUtil.get(tag);
+            if (mask != null) {
+                object = prepare(object);
+                for (int i = 0; i < mask.length; i++) {
+                    addAll(object, mask[i], i << 6);
+                }
+                return object;
+            }
+        }
+        return super.read(registry, phase, nbt, type, name, object);
+    }
+
+    private EnumSet prepare(@Nullable EnumSet object) {
+        if (object == null) {
+            return makeCollection();
+        }
+        object.clear();
+        return object;
+    }
+
+    /**
+     * Adds the values whose bits are set in the mask. The first bit of the mask is for the value with the given
+     * ordinal.
+     */
+    private void addAll(EnumSet object, long mask, int offset) {
+        while (mask != 0) {
+            int ordinal = offset + Long.numberOfTrailingZeros(mask);
+            if (ordinal < enumValues.length) {
+                object.add(enumValues[ordinal]);
+            }
+            mask &= mask - 1;
+        }
+    }
 }
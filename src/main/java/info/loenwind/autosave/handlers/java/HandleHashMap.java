@@ -26,6 +26,11 @@ public class HandleHashMap extends HandleMap<HashMap> {
         return new HashMap();
     }
 
+    @Override
+    protected HashMap createMap(int size) {
+        return new HashMap(hashCapacity(size));
+    }
+
     @Override
     protected IHandler<? extends HashMap> create(Registry registry, Type... types) throws NoHandlerFoundException {
         return new HandleHashMap(registry, types);
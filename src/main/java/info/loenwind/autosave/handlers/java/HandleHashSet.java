@@ -26,6 +26,11 @@ public class HandleHashSet extends HandleCollection<HashSet> {
         return new HashSet();
     }
 
+    @Override
+    protected HashSet makeCollection(int size) {
+        return new HashSet(hashCapacity(size));
+    }
+
     @Override
     protected boolean canHandle(Type type) {
         return TypeUtil.toClass(type) == Set.class || super.canHandle(type);
@@ -0,0 +1,96 @@
+package info.loenwind.autosave.handlers.java;
+
+import java.lang.reflect.Type;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.util.ElementList;
+import info.loenwind.autosave.handlers.util.HandleGenericType;
+import info.loenwind.autosave.util.Log;
+import info.loenwind.autosave.util.LongArrayUtil;
+import info.loenwind.autosave.util.LongMap;
+import info.loenwind.autosave.util.NBTAction;
+
+/**
+ * Handler for {@link LongMap}s. They are stored as a compound with a long array of the keys under "k" and an
+ * {@link ElementList} of the values in the same order under "v".
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class HandleLongMap extends HandleGenericType<LongMap> {
+
+    private static final @Nonnull String KEYS = "k";
+    private static final @Nonnull String VALUES = "v";
+
+    public HandleLongMap() {
+        super(LongMap.class);
+    }
+
+    protected HandleLongMap(Registry registry, Type... types) throws NoHandlerFoundException {
+        super(LongMap.class, registry, types);
+    }
+
+    @Override
+    protected IHandler<? extends LongMap> create(Registry registry, Type... types) throws NoHandlerFoundException {
+        return new HandleLongMap(registry, types);
+    }
+
+    @Override
+    public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                         LongMap object) throws IllegalArgumentException, IllegalAccessException,
+                                         InstantiationException, NoHandlerFoundException {
+        long[] keys = object.keys();
+        Object[] values = object.values();
+        ElementList.Builder list = new ElementList.Builder(values.length);
+        for (Object value : values) {
+            NBTTagCompound etag = list.next();
+            if (value != null) {
+                storeRecursive(0, registry, phase, etag, ElementList.ELEMENT_KEY, value);
+            }
+        }
+        NBTTagCompound tag = new NBTTagCompound();
+        LongArrayUtil.set(tag, KEYS, keys);
+        tag.setTag(VALUES, list.build());
+        nbt.setTag(name, tag);
+        return true;
+    }
+
+    @Override
+    public @Nullable LongMap read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                                  @Nullable LongMap object) throws IllegalArgumentException, IllegalAccessException,
+                                                            InstantiationException, NoHandlerFoundException {
+        if (nbt.hasKey(name)) {
+            NBTTagCompound tag = nbt.getCompoundTag(name);
+            long[] keys = LongArrayUtil.get(tag, KEYS);
+            ElementList.View list = ElementList.read(tag, VALUES);
+            if (keys == null || list == null || keys.length != list.size()) {
+                Log.error("Found invalid map data! Data: ", tag, "   Type: ", type);
+                return object;
+            }
+            // Existing values are handed to the value handlers, so mutable values are updated in place
+            Object[] values = new Object[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                NBTTagCompound etag = list.get(i);
+                values[i] = etag == null ? null :
+                        readRecursive(0, registry, phase, etag, ElementList.ELEMENT_KEY,
+                                object != null ? object.get(keys[i]) : null);
+            }
+            if (object == null) {
+                object = new LongMap(keys.length);
+            } else {
+                object.clear();
+                object.ensureCapacity(keys.length);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                object.put(keys[i], values[i]);
+            }
+        }
+        return object;
+    }
+}
@@ -0,0 +1,55 @@
+package info.loenwind.autosave.handlers.java;
+
+import java.lang.reflect.Type;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.util.LongArrayUtil;
+import info.loenwind.autosave.util.LongSet;
+import info.loenwind.autosave.util.NBTAction;
+
+/**
+ * Handler for {@link LongSet}s. They are stored as one long array of their elements.
+ */
+public class HandleLongSet implements IHandler<LongSet> {
+
+    public HandleLongSet() {}
+
+    @Override
+    public Class<?> getRootType() {
+        return LongSet.class;
+    }
+
+    @Override
+    public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                         LongSet object) throws IllegalArgumentException, IllegalAccessException,
+                                         InstantiationException, NoHandlerFoundException {
+        LongArrayUtil.set(nbt, name, object.toArray());
+        return true;
+    }
+
+    @Override
+    public @Nullable LongSet read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                                  @Nullable LongSet object) throws IllegalArgumentException, IllegalAccessException,
+                                                            InstantiationException, NoHandlerFoundException {
+        long[] data = LongArrayUtil.get(nbt, name);
+        if (data != null) {
+            if (object == null) {
+                object = new LongSet(data.length);
+            } else {
+                object.clear();
+                object.ensureCapacity(data.length);
+            }
+            for (long value : data) {
+                object.add(value);
+            }
+        }
+        return object;
+    }
+}
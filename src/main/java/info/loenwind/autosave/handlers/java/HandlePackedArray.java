@@ -0,0 +1,91 @@
+package info.loenwind.autosave.handlers.java;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.util.ElementPacking;
+import info.loenwind.autosave.util.NBTAction;
+import info.loenwind.autosave.util.TypeUtil;
+
+/**
+ * Handler for arrays of elements that can be packed (e.g. enums and {@link net.minecraft.util.math.BlockPos}). They
+ * are stored as one packed array tag, see {@link ElementPacking}. Arrays in the format of {@link HandleArrays} can
+ * still be read.
+ * <p>
+ * This must be registered before {@link HandleArrays}.
+ */
+public class HandlePackedArray extends HandleArrays {
+
+    private final Class<?> componentClass;
+    private final @Nullable ElementPacking packing;
+
+    public HandlePackedArray() {
+        this.componentClass = Object.class;
+        this.packing = null;
+    }
+
+    protected HandlePackedArray(Registry registry, Class<?> componentClass, ElementPacking packing) {
+        super(registry, componentClass);
+        this.componentClass = componentClass;
+        this.packing = packing;
+    }
+
+    @Override
+    @Nullable
+    public IHandler<?> getHandler(Registry registry, Type type) {
+        Class<?> clazz = TypeUtil.toClass(type);
+        if (clazz.isArray() && !clazz.getComponentType().isPrimitive()) {
+            try {
+                ElementPacking packing = ElementPacking.forHandlers(clazz.getComponentType(),
+                        registry.findHandlers(clazz.getComponentType()));
+                if (packing != null) {
+                    return new HandlePackedArray(registry, clazz.getComponentType(), packing);
+                }
+            } catch (InstantiationException | IllegalAccessException ignored) {}
+        }
+        return null;
+    }
+
+    @Override
+    public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                         Object object) throws IllegalArgumentException, IllegalAccessException,
+                                        InstantiationException, NoHandlerFoundException {
+        final ElementPacking packer = packing;
+        NBTBase packed = packer != null ? packer.pack(Arrays.asList((Object[]) object)) : null;
+        if (packed == null) {
+            // E.g. an array with nulls, HandleArrays will store it
+            return false;
+        }
+        nbt.setTag(name, packed);
+        return true;
+    }
+
+    @Override
+    @Nullable
+    public Object read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                       @Nullable Object object) throws IllegalArgumentException, IllegalAccessException,
+                                                InstantiationException, NoHandlerFoundException {
+        final ElementPacking packer = packing;
+        NBTBase tag = nbt.getTag(name);
+        int size = packer != null && tag != null ? packer.size(tag) : -1;
+        if (packer == null || tag == null || size < 0) {
+            // Not packed, e.g. written by HandleArrays
+            return super.read(registry, phase, nbt, type, name, object);
+        }
+        if (object == null || Array.getLength(object) != size) {
+            object = Array.newInstance(componentClass, size);
+        }
+        packer.unpack(tag, (Object[]) object);
+        return object;
+    }
+}
@@ -16,6 +16,26 @@ import info.loenwind.autosave.util.TypeUtil;
 
 public class HandlePrimitive<T> implements IHandler<T> {
 
+    // The built-in handlers for the Java primitives. The engine recognizes these by identity and (re-)stores fields
+    // of the matching primitive types without boxing, producing the same NBT.
+
+    public static final @Nonnull HandlePrimitive<Boolean> BOOLEAN = new HandlePrimitive<>(false, Boolean.class,
+            boolean.class, NBTTagCompound::setBoolean, NBTTagCompound::getBoolean);
+    public static final @Nonnull HandlePrimitive<Character> CHAR = new HandlePrimitive<>((char) 0, Character.class,
+            char.class, (nbt, name, c) -> nbt.setInteger(name, (int) c), (nbt, name) -> (char) nbt.getInteger(name));
+    public static final @Nonnull HandlePrimitive<Byte> BYTE = new HandlePrimitive<>((byte) 0, Byte.class, byte.class,
+            NBTTagCompound::setByte, NBTTagCompound::getByte);
+    public static final @Nonnull HandlePrimitive<Short> SHORT = new HandlePrimitive<>((short) 0, Short.class,
+            short.class, NBTTagCompound::setShort, NBTTagCompound::getShort);
+    public static final @Nonnull HandlePrimitive<Integer> INT = new HandlePrimitive<>(0, Integer.class, int.class,
+            NBTTagCompound::setInteger, NBTTagCompound::getInteger);
+    public static final @Nonnull HandlePrimitive<Long> LONG = new HandlePrimitive<>(0L, Long.class, long.class,
+            NBTTagCompound::setLong, NBTTagCompound::getLong);
+    public static final @Nonnull HandlePrimitive<Float> FLOAT = new HandlePrimitive<>(0F, Float.class, float.class,
+            NBTTagCompound::setFloat, NBTTagCompound::getFloat);
+    public static final @Nonnull HandlePrimitive<Double> DOUBLE = new HandlePrimitive<>(0D, Double.class,
+            double.class, NBTTagCompound::setDouble, NBTTagCompound::getDouble);
+
     public interface WriterFunc<@NonnullType T> {
 
         void set(NBTTagCompound tag, String name, @Nullable T object);
@@ -26,16 +46,29 @@ public class HandlePrimitive<T> implements IHandler<T> {
         T get(NBTTagCompound tag, String name);
     }
 
+    /**
+     * A reader that is given the current value, so it can reuse it (e.g. fill an existing array).
+     */
+    public interface InPlaceReaderFunc<@NonnullType T> {
+
+        T get(NBTTagCompound tag, String name, @Nullable T object);
+    }
+
     private final T defaultValue;
 
     private final @Nullable Class<?> primitiveClass;
     private final @Nonnull Class<?> boxedClass;
 
     private final @Nonnull WriterFunc<T> writer;
-    private final @Nonnull ReaderFunc<T> reader;
+    private final @Nonnull InPlaceReaderFunc<T> reader;
 
     public HandlePrimitive(T defVal, Class<T> boxedClass, @Nullable Class<?> primitiveClass, WriterFunc<T> writer,
                            ReaderFunc<T> reader) {
+        this(defVal, boxedClass, primitiveClass, writer, (tag, name, object) -> reader.get(tag, name));
+    }
+
+    public HandlePrimitive(T defVal, Class<T> boxedClass, @Nullable Class<?> primitiveClass, WriterFunc<T> writer,
+                           InPlaceReaderFunc<T> reader) {
         this.defaultValue = defVal;
         this.primitiveClass = primitiveClass;
         this.boxedClass = boxedClass;
@@ -60,6 +93,6 @@ public class HandlePrimitive<T> implements IHandler<T> {
     @Override
     public @Nullable T read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
                             @Nullable T object) {
-        return nbt.hasKey(name) ? reader.get(nbt, name) : object != null ? object : defaultValue;
+        return nbt.hasKey(name) ? reader.get(nbt, name, object) : object != null ? object : defaultValue;
     }
 }
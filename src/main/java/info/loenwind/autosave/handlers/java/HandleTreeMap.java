@@ -0,0 +1,266 @@
+package info.loenwind.autosave.handlers.java;
+
+import java.lang.reflect.Type;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.java.util.HandleMap;
+
+/**
+ * Handler for {@link TreeMap}s.
+ * <p>
+ * As a {@link TreeMap} is written in key order, it usually is read in key order, too. In that case, the tree is
+ * built in one go (in linear time) instead of by inserting one entry after the other.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class HandleTreeMap extends HandleMap<TreeMap> {
+
+    public HandleTreeMap() {
+        super(TreeMap.class);
+    }
+
+    protected HandleTreeMap(Registry registry, Type... types) throws NoHandlerFoundException {
+        super(TreeMap.class, registry, types);
+    }
+
+    @Override
+    protected TreeMap createMap() {
+        return new TreeMap();
+    }
+
+    @Override
+    protected Map prepareMap(@Nullable TreeMap object, int size) {
+        return new SortedEntries(object != null ? object.comparator() : null, size);
+    }
+
+    @Override
+    protected TreeMap finishMap(@Nullable TreeMap object, Map entries) {
+        SortedEntries sorted = (SortedEntries) entries;
+        // The TreeMap constructor and putAll() build the tree in one go if given a SortedMap with the same comparator
+        Map source = sorted.isSorted() ? sorted.asSorted() : sorted.asUnsorted();
+        if (object == null) {
+            return new TreeMap(source);
+        }
+        object.clear();
+        object.putAll(source);
+        return object;
+    }
+
+    @Override
+    protected IHandler<? extends TreeMap> create(Registry registry, Type... types) throws NoHandlerFoundException {
+        return new HandleTreeMap(registry, types);
+    }
+
+    /**
+     * Collects the entries that are read and checks if they are in key order.
+     */
+    private static final class SortedEntries extends AbstractMap {
+
+        private final @Nullable Comparator comparator;
+        private Object[] keys;
+        private Object[] values;
+        private int size = 0;
+        private boolean sorted = true;
+
+        SortedEntries(@Nullable Comparator comparator, int expectedSize) {
+            this.comparator = comparator;
+            this.keys = new Object[expectedSize];
+            this.values = new Object[expectedSize];
+        }
+
+        @Override
+        public @Nullable Object put(Object key, Object value) {
+            if (size == keys.length) {
+                int newLength = Math.max(16, size * 2);
+                keys = Arrays.copyOf(keys, newLength);
+                values = Arrays.copyOf(values, newLength);
+            }
+            if (sorted && (key == null && comparator == null || size > 0 && compare(keys[size - 1], key) >= 0)) {
+                // Not sorted (or a key TreeMap would reject), leave it to TreeMap to deal with the entries
+                sorted = false;
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+            return null;
+        }
+
+        int compare(Object a, Object b) {
+            final Comparator cmp = comparator;
+            if (cmp != null) {
+                return cmp.compare(a, b);
+            }
+            return ((Comparable) a).compareTo(b);
+        }
+
+        boolean isSorted() {
+            return sorted;
+        }
+
+        /**
+         * Returns the entries as a sorted map. Must only be called if they are {@link #isSorted() sorted} and no more
+         * entries will be added.
+         */
+        SortedMap asSorted() {
+            return new SortedView(this, 0, size);
+        }
+
+        /**
+         * Returns the entries as a plain map, so they are inserted one by one.
+         */
+        Map asUnsorted() {
+            Map result = new LinkedHashMap();
+            for (int i = 0; i < size; i++) {
+                result.put(keys[i], values[i]);
+            }
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set entrySet() {
+            return new EntrySet(this, 0, size);
+        }
+    }
+
+    /**
+     * An unmodifiable {@link SortedMap} of a range of the sorted entries.
+     */
+    private static final class SortedView extends AbstractMap implements SortedMap {
+
+        private final SortedEntries entries;
+        private final int from;
+        private final int to;
+
+        SortedView(SortedEntries entries, int from, int to) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns the index of the first entry in this range with a key that is not less than the given key.
+         */
+        private int lowerBound(Object key) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (entries.compare(entries.keys[mid], key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        public @Nullable Comparator comparator() {
+            return entries.comparator;
+        }
+
+        @Override
+        public SortedMap subMap(Object fromKey, Object toKey) {
+            if (entries.compare(fromKey, toKey) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            return new SortedView(entries, lowerBound(fromKey), lowerBound(toKey));
+        }
+
+        @Override
+        public SortedMap headMap(Object toKey) {
+            return new SortedView(entries, from, lowerBound(toKey));
+        }
+
+        @Override
+        public SortedMap tailMap(Object fromKey) {
+            return new SortedView(entries, lowerBound(fromKey), to);
+        }
+
+        @Override
+        public Object firstKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return entries.keys[from];
+        }
+
+        @Override
+        public Object lastKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return entries.keys[to - 1];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public Set entrySet() {
+            return new EntrySet(entries, from, to);
+        }
+    }
+
+    private static final class EntrySet extends AbstractSet {
+
+        private final SortedEntries entries;
+        private final int from;
+        private final int to;
+
+        EntrySet(SortedEntries entries, int from, int to) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator iterator() {
+            return new Iterator() {
+
+                private int next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < to;
+                }
+
+                @Override
+                public Object next() {
+                    if (next >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    Map.Entry entry = new AbstractMap.SimpleImmutableEntry(entries.keys[next], entries.values[next]);
+                    next++;
+                    return entry;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
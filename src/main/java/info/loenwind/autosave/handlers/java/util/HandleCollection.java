@@ -2,28 +2,37 @@ package info.loenwind.autosave.handlers.java.util;
 
 import java.lang.reflect.Type;
 import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
-import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.util.ElementList;
+import info.loenwind.autosave.handlers.util.ElementPacking;
 import info.loenwind.autosave.handlers.util.HandleGenericType;
 import info.loenwind.autosave.util.NBTAction;
+import info.loenwind.autosave.util.NullHelper;
 
 @SuppressWarnings({ "rawtypes", "unchecked" })
 public abstract class HandleCollection<T extends Collection> extends HandleGenericType<T> {
 
+    private final @Nullable ElementPacking packing;
+
     public HandleCollection(Class<? extends T> clazz) {
         super(clazz);
+        this.packing = null;
     }
 
     protected HandleCollection(Class<? extends T> clazz, Registry registry,
                                Type... types) throws NoHandlerFoundException {
         super(clazz, registry, types);
+        this.packing = ElementPacking.forHandlers(types[0], subHandlers[0]);
     }
 
     @Override
@@ -32,18 +41,23 @@ public abstract class HandleCollection<T extends Collection> extends HandleGener
                                                                                                                         IllegalAccessException,
                                                                                                                         InstantiationException,
                                                                                                                         NoHandlerFoundException {
-        NBTTagCompound tag = new NBTTagCompound();
-        tag.setInteger("size", object.size());
-        int i = 0;
+        final ElementPacking packer = packing;
+        if (packer != null) {
+            NBTBase packed = packer.pack(object);
+            if (packed != null) {
+                nbt.setTag(name, packed);
+                return true;
+            }
+        }
+
+        ElementList.Builder list = new ElementList.Builder(object.size());
         for (Object elem : object) {
+            NBTTagCompound etag = list.next();
             if (elem != null) {
-                for (IHandler handler : subHandlers[0]) {
-                    handler.store(registry, phase, tag, type, String.valueOf(i), elem);
-                }
+                storeRecursive(0, registry, phase, etag, ElementList.ELEMENT_KEY, elem);
             }
-            i++;
         }
-        nbt.setTag(name, tag);
+        nbt.setTag(name, list.build());
         return true;
     }
 
@@ -52,20 +66,81 @@ public abstract class HandleCollection<T extends Collection> extends HandleGener
                             @Nullable T object) throws IllegalArgumentException, IllegalAccessException,
                                                 InstantiationException, NoHandlerFoundException {
         if (nbt.hasKey(name)) {
-            if (object == null) {
-                object = makeCollection();
+            NBTBase tag = NullHelper.notnullM(nbt.getTag(name), "NBTTagCompound#getTag");
+            final ElementPacking packer = packing;
+            int packedSize = packer != null ? packer.size(tag) : -1;
+            if (packer != null && packedSize >= 0) {
+                object = prepareCollection(object, packedSize);
+                packer.unpack(tag, object);
+                return object;
+            }
+
+            ElementList.View list = ElementList.read(nbt, name);
+            if (list != null) {
+                if (object instanceof List && object instanceof RandomAccess) {
+                    readInPlace(registry, phase, list, (List) object);
+                    return object;
+                }
+                object = prepareCollection(object, list.size());
+                for (int i = 0; i < list.size(); i++) {
+                    NBTTagCompound etag = list.get(i);
+                    object.add(etag == null ? null :
+                            readRecursive(0, registry, phase, etag, ElementList.ELEMENT_KEY, null));
+                }
             } else {
-                object.clear();
+                // Legacy format
+                NBTTagCompound legacy = nbt.getCompoundTag(name);
+                int size = legacy.getInteger("size");
+                object = prepareCollection(object, size);
+                for (int i = 0; i < size; i++) {
+                    object.add(readRecursive(0, registry, phase, legacy, String.valueOf(i), null));
+                }
             }
+        }
+        return object;
+    }
 
-            NBTTagCompound tag = nbt.getCompoundTag(name);
-            int size = tag.getInteger("size");
-            for (int i = 0; i < size; i++) {
-                object.add(readRecursive(0, registry, phase, tag, String.valueOf(i), null));
+    /**
+     * Reads the elements into an existing list, matching them by index. Existing elements are handed to the element
+     * handlers, so mutable elements (e.g. {@link info.loenwind.autosave.annotations.Storable} objects) are updated
+     * instead of being replaced.
+     */
+    private void readInPlace(Registry registry, Set<NBTAction> phase, ElementList.View list,
+                             List<Object> object) throws IllegalArgumentException, IllegalAccessException,
+                                                  InstantiationException, NoHandlerFoundException {
+        int size = list.size();
+        for (int i = 0; i < size; i++) {
+            boolean exists = i < object.size();
+            Object previous = exists ? object.get(i) : null;
+            NBTTagCompound etag = list.get(i);
+            Object elem = etag == null ? null :
+                    readRecursive(0, registry, phase, etag, ElementList.ELEMENT_KEY, previous);
+            if (!exists) {
+                object.add(elem);
+            } else if (elem != previous) {
+                object.set(i, elem);
             }
         }
+        if (object.size() > size) {
+            object.subList(size, object.size()).clear();
+        }
+    }
+
+    private T prepareCollection(@Nullable T object, int size) {
+        if (object == null) {
+            return makeCollection(size);
+        }
+        object.clear();
         return object;
     }
 
     abstract protected T makeCollection();
+
+    /**
+     * Creates a collection that will be filled with the given number of elements. Subclasses that can presize their
+     * collections should override this.
+     */
+    protected T makeCollection(int size) {
+        return makeCollection();
+    }
 }
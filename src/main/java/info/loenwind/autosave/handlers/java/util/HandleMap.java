@@ -1,12 +1,18 @@
 package info.loenwind.autosave.handlers.java.util;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.util.Constants;
@@ -14,18 +20,52 @@ import net.minecraftforge.common.util.Constants;
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.engine.StorableEngine;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.java.HandleString;
+import info.loenwind.autosave.handlers.util.ElementList;
+import info.loenwind.autosave.handlers.util.ElementPacking;
 import info.loenwind.autosave.handlers.util.HandleGenericType;
+import info.loenwind.autosave.util.Log;
 import info.loenwind.autosave.util.NBTAction;
+import info.loenwind.autosave.util.NullHelper;
 
+/**
+ * Base handler for maps.
+ * <p>
+ * Depending on the key type, maps are stored as:
+ * <ul>
+ * <li><code>String</code> keys: A compound with one tag per entry, named by its key. This is only possible if no key or
+ * value is <code>null</code>, every value is stored as a single tag under its key and the map does not have a
+ * significant iteration order (as a {@link LinkedHashMap} does).
+ * <li>Keys that can be packed (e.g. primitives and enums, see {@link ElementPacking}) or values that can be packed (e.g.
+ * block states): A compound with the keys under "k" and the values in the same order under "v". Each is packed if
+ * possible, and an {@link ElementList} otherwise.
+ * <li>Everything else (and maps that cannot use the above): A list with one compound per entry, containing the key
+ * under "key" and the value under "val". This is also the format all maps were stored in before, which is still read.
+ * </ul>
+ */
 @SuppressWarnings({ "rawtypes", "unchecked" })
 public abstract class HandleMap<T extends Map> extends HandleGenericType<T> {
 
+    private static final @Nonnull String KEYS = "k";
+    private static final @Nonnull String VALUES = "v";
+
+    private final boolean stringKeys;
+    private final @Nullable ElementPacking keyPacking;
+    private final @Nullable ElementPacking valuePacking;
+
     protected HandleMap(Class<? extends T> clazz) {
         super(clazz);
+        this.stringKeys = false;
+        this.keyPacking = null;
+        this.valuePacking = null;
     }
 
     protected HandleMap(Class<? extends T> clazz, Registry registry, Type... types) throws NoHandlerFoundException {
         super(clazz, registry, types);
+        this.stringKeys = types[0] == String.class && subHandlers[0].get(0).getClass() == HandleString.class;
+        this.keyPacking = ElementPacking.forHandlers(types[0], subHandlers[0]);
+        // Maps with string keys use the compound format instead
+        this.valuePacking = stringKeys ? null : ElementPacking.forHandlers(types[1], subHandlers[1]);
     }
 
     @Override
@@ -34,6 +74,13 @@ public abstract class HandleMap<T extends Map> extends HandleGenericType<T> {
                                                                                                                         IllegalAccessException,
                                                                                                                         InstantiationException,
                                                                                                                         NoHandlerFoundException {
+        // Compounds do not keep the order of their tags
+        if (stringKeys && !(object instanceof LinkedHashMap) && storeCompound(registry, phase, nbt, name, object)) {
+            return true;
+        }
+        if ((keyPacking != null || valuePacking != null) && storeColumns(registry, phase, nbt, name, object)) {
+            return true;
+        }
         NBTTagList tag = new NBTTagList();
         for (Entry e : (Set<Entry>) object.entrySet()) {
             NBTTagCompound etag = new NBTTagCompound();
@@ -55,29 +102,212 @@ public abstract class HandleMap<T extends Map> extends HandleGenericType<T> {
         return true;
     }
 
+    private boolean storeCompound(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, String name,
+                                  T object) throws IllegalArgumentException, IllegalAccessException,
+                                            InstantiationException, NoHandlerFoundException {
+        NBTTagCompound tag = new NBTTagCompound();
+        // Values are stored into a scratch compound first, so extra tags their handlers write cannot clash with the
+        // other entries
+        NBTTagCompound scratch = new NBTTagCompound();
+        for (Entry e : (Set<Entry>) object.entrySet()) {
+            String key = (String) e.getKey();
+            Object val = e.getValue();
+            if (key == null || val == null) {
+                return false;
+            }
+            storeRecursive(1, registry, phase, scratch, key, val);
+            NBTBase valTag = scratch.getTag(key);
+            if (valTag == null || scratch.getSize() != 1) {
+                return false;
+            }
+            tag.setTag(key, valTag);
+            scratch.removeTag(key);
+        }
+        nbt.setTag(name, tag);
+        return true;
+    }
+
+    private boolean storeColumns(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, String name,
+                                 T object) throws IllegalArgumentException, IllegalAccessException,
+                                           InstantiationException, NoHandlerFoundException {
+        List keys = new ArrayList(object.size());
+        List values = new ArrayList(object.size());
+        for (Entry e : (Set<Entry>) object.entrySet()) {
+            keys.add(e.getKey());
+            values.add(e.getValue());
+        }
+        final ElementPacking keyPacker = keyPacking;
+        NBTBase keyTag = keyPacker != null ? keyPacker.pack(keys) : storeColumn(0, registry, phase, keys);
+        if (keyTag == null) {
+            // E.g. a null key, which cannot be packed as a primitive
+            return false;
+        }
+        final ElementPacking valuePacker = valuePacking;
+        NBTBase valueTag = valuePacker != null ? valuePacker.pack(values) : null;
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag(KEYS, keyTag);
+        tag.setTag(VALUES, valueTag != null ? valueTag : storeColumn(1, registry, phase, values));
+        nbt.setTag(name, tag);
+        return true;
+    }
+
+    private NBTTagList storeColumn(int index, Registry registry, Set<NBTAction> phase,
+                                   List elements) throws IllegalArgumentException, IllegalAccessException,
+                                                  InstantiationException, NoHandlerFoundException {
+        ElementList.Builder list = new ElementList.Builder(elements.size());
+        for (Object elem : elements) {
+            NBTTagCompound etag = list.next();
+            if (elem != null) {
+                storeRecursive(index, registry, phase, etag, ElementList.ELEMENT_KEY, elem);
+            }
+        }
+        return list.build();
+    }
+
     @Override
     public @Nullable T read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
                             @Nullable T object) throws IllegalArgumentException, IllegalAccessException,
                                                 InstantiationException, NoHandlerFoundException {
-        if (nbt.hasKey(name)) {
-            if (object == null) {
-                object = createMap();
-            } else {
-                object.clear();
+        if (nbt.hasKey(name, Constants.NBT.TAG_COMPOUND)) {
+            NBTTagCompound tag = nbt.getCompoundTag(name);
+            if (stringKeys) {
+                return readCompound(registry, phase, tag, object);
+            } else if (keyPacking != null || valuePacking != null) {
+                return readColumns(registry, phase, tag, type, object);
             }
-
+        } else if (nbt.hasKey(name)) {
             NBTTagList tag = nbt.getTagList(name, Constants.NBT.TAG_COMPOUND);
+            Map entries = prepareMap(object, tag.tagCount());
+            // Reading into the existing map, keys that are not read again need to be removed afterwards
+            Set seen = entries == object ? new HashSet(hashCapacity(tag.tagCount())) : null;
             for (int i = 0; i < tag.tagCount(); i++) {
                 NBTTagCompound etag = tag.getCompoundTagAt(i);
                 Object key = etag.getBoolean("key" + StorableEngine.NULL_POSTFIX) ? null :
                         readRecursive(0, registry, phase, etag, "key", null);
+                // Existing values are handed to the value handlers, so mutable values are updated in place
+                Object previous = object != null && key != null ? object.get(key) : null;
                 Object val = etag.getBoolean("val" + StorableEngine.NULL_POSTFIX) ? null :
-                        readRecursive(1, registry, phase, etag, "val", null);
-                object.put(key, val);
+                        readRecursive(1, registry, phase, etag, "val", previous);
+                put(entries, seen, key, val);
             }
+            object = finish(object, entries, seen);
         }
         return object;
     }
 
+    private @Nullable T readCompound(Registry registry, Set<NBTAction> phase, NBTTagCompound tag,
+                                     @Nullable T object) throws IllegalArgumentException, IllegalAccessException,
+                                                         InstantiationException, NoHandlerFoundException {
+        Map entries = prepareMap(object, tag.getSize());
+        Set seen = entries == object ? new HashSet(hashCapacity(tag.getSize())) : null;
+        for (String key : tag.getKeySet()) {
+            Object previous = object != null ? object.get(key) : null;
+            put(entries, seen, key, readRecursive(1, registry, phase, tag, NullHelper.notnullJ(key, "Set#iterator"),
+                    previous));
+        }
+        return finish(object, entries, seen);
+    }
+
+    private @Nullable T readColumns(Registry registry, Set<NBTAction> phase, NBTTagCompound tag, Type type,
+                                    @Nullable T object) throws IllegalArgumentException, IllegalAccessException,
+                                                        InstantiationException, NoHandlerFoundException {
+        final ElementPacking keyPacker = keyPacking;
+        final ElementPacking valuePacker = valuePacking;
+        NBTBase keyTag = tag.getTag(KEYS);
+        NBTBase valueTag = tag.getTag(VALUES);
+        int size = keyTag != null && valueTag != null ? columnSize(keyPacker, keyTag) : -1;
+        if (keyTag == null || valueTag == null || size < 0 || size != columnSize(valuePacker, valueTag)) {
+            Log.error("Found invalid map data! Data: ", tag, "   Type: ", type);
+            return object;
+        }
+        List keys = new ArrayList(size);
+        if (keyTag instanceof NBTTagList) {
+            ElementList.View list = new ElementList.View((NBTTagList) keyTag);
+            for (int i = 0; i < size; i++) {
+                NBTTagCompound etag = list.get(i);
+                keys.add(etag == null ? null : readRecursive(0, registry, phase, etag, ElementList.ELEMENT_KEY, null));
+            }
+        } else if (keyPacker != null) {
+            keyPacker.unpack(keyTag, keys);
+        }
+        List packedValues = null;
+        if (!(valueTag instanceof NBTTagList) && valuePacker != null) {
+            packedValues = new ArrayList(size);
+            valuePacker.unpack(valueTag, packedValues);
+        }
+        ElementList.View values = valueTag instanceof NBTTagList ? new ElementList.View((NBTTagList) valueTag) : null;
+        Map entries = prepareMap(object, size);
+        Set seen = entries == object ? new HashSet(hashCapacity(size)) : null;
+        for (int i = 0; i < size; i++) {
+            Object key = keys.get(i);
+            Object val = null;
+            if (packedValues != null) {
+                val = packedValues.get(i);
+            } else if (values != null) {
+                Object previous = object != null && key != null ? object.get(key) : null;
+                NBTTagCompound etag = values.get(i);
+                val = etag == null ? null : readRecursive(1, registry, phase, etag, ElementList.ELEMENT_KEY, previous);
+            }
+            put(entries, seen, key, val);
+        }
+        return finish(object, entries, seen);
+    }
+
+    /**
+     * Returns the number of elements in a column, which is either an {@link ElementList} or was packed by the given
+     * packing. Returns -1 if it is neither.
+     */
+    private static int columnSize(@Nullable ElementPacking packing, NBTBase tag) {
+        if (tag instanceof NBTTagList) {
+            return ((NBTTagList) tag).tagCount();
+        }
+        return packing != null ? packing.size(tag) : -1;
+    }
+
+    /**
+     * Checks if a compound was written in the columnar format (keys under "k", values under "v").
+     */
+    protected static boolean isColumns(NBTTagCompound tag) {
+        return tag.hasKey(KEYS) && tag.hasKey(VALUES);
+    }
+
+    private static void put(Map entries, @Nullable Set seen, @Nullable Object key, @Nullable Object val) {
+        entries.put(key, val);
+        if (seen != null) {
+            seen.add(key);
+        }
+    }
+
+    private T finish(@Nullable T object, Map entries, @Nullable Set seen) {
+        if (seen != null && seen.size() < entries.size()) {
+            entries.keySet().retainAll(seen);
+        }
+        return finishMap(object, entries);
+    }
+
     abstract protected T createMap();
+
+    /**
+     * Creates a map that will be filled with the given number of entries. Subclasses that can presize their maps
+     * should override this.
+     */
+    protected T createMap(int size) {
+        return createMap();
+    }
+
+    /**
+     * Returns the map the entries that are read are put into. By default, this is the given map or a new map. Entries of
+     * the given map that are not read are removed from it.
+     */
+    protected Map prepareMap(@Nullable T object, int size) {
+        return object != null ? object : createMap(size);
+    }
+
+    /**
+     * Returns the result of reading, given the map {@link #prepareMap(Map, int)} returned after all entries have been
+     * put into it.
+     */
+    protected T finishMap(@Nullable T object, Map entries) {
+        return (T) entries;
+    }
 }
@@ -2,6 +2,7 @@ package info.loenwind.autosave.handlers.java.util;
 
 import java.lang.reflect.Type;
 import java.util.Collection;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
@@ -17,20 +18,39 @@ import info.loenwind.autosave.util.TypeUtil;
 public class HandleSimpleCollection<T extends Collection> extends HandleCollection<T> {
 
     private final @Nonnull Supplier<@NonnullType ? extends T> factory;
+    private final @Nullable IntFunction<@NonnullType ? extends T> sizedFactory;
 
     public HandleSimpleCollection(Class<? extends T> clazz) {
         this(clazz, TypeUtil.defaultConstructorFactory(clazz));
     }
 
     public HandleSimpleCollection(Class<? extends T> clazz, Supplier<? extends T> factory) {
+        this(clazz, factory, null);
+    }
+
+    /**
+     * @param sizedFactory
+     *                     Creates a collection for the given number of elements. Used when reading, when the number
+     *                     of elements is known.
+     */
+    public HandleSimpleCollection(Class<? extends T> clazz, Supplier<? extends T> factory,
+                                  @Nullable IntFunction<? extends T> sizedFactory) {
         super(clazz);
         this.factory = factory;
+        this.sizedFactory = sizedFactory;
     }
 
     public HandleSimpleCollection(Class<? extends T> clazz, Supplier<? extends T> factory, Registry registry,
                                   Type... types) throws NoHandlerFoundException {
+        this(clazz, factory, null, registry, types);
+    }
+
+    public HandleSimpleCollection(Class<? extends T> clazz, Supplier<? extends T> factory,
+                                  @Nullable IntFunction<? extends T> sizedFactory, Registry registry,
+                                  Type... types) throws NoHandlerFoundException {
         super(clazz, registry, types);
         this.factory = factory;
+        this.sizedFactory = sizedFactory;
     }
 
     @Override
@@ -38,9 +58,15 @@ public class HandleSimpleCollection<T extends Collection> extends HandleCollecti
         return factory.get();
     }
 
+    @Override
+    protected T makeCollection(int size) {
+        final IntFunction<@NonnullType ? extends T> sized = sizedFactory;
+        return sized != null ? sized.apply(size) : factory.get();
+    }
+
     @Override
     @Nullable
     protected IHandler<? extends T> create(Registry registry, Type... types) throws NoHandlerFoundException {
-        return new HandleSimpleCollection<>(clazz, factory, registry, types);
+        return new HandleSimpleCollection<>(clazz, factory, sizedFactory, registry, types);
     }
 }
@@ -2,9 +2,11 @@ package info.loenwind.autosave.handlers.java.util;
 
 import java.lang.reflect.Type;
 import java.util.Map;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
@@ -16,20 +18,39 @@ import info.loenwind.autosave.util.TypeUtil;
 public class HandleSimpleMap<T extends Map> extends HandleMap<T> {
 
     private final @Nonnull Supplier<@NonnullType ? extends T> factory;
+    private final @Nullable IntFunction<@NonnullType ? extends T> sizedFactory;
 
     public HandleSimpleMap(Class<? extends T> clazz) {
         this(clazz, TypeUtil.defaultConstructorFactory(clazz));
     }
 
     public HandleSimpleMap(Class<? extends T> clazz, Supplier<? extends T> factory) {
+        this(clazz, factory, null);
+    }
+
+    /**
+     * @param sizedFactory
+     *                     Creates a map for the given number of entries. Used when reading, when the number of
+     *                     entries is known.
+     */
+    public HandleSimpleMap(Class<? extends T> clazz, Supplier<? extends T> factory,
+                           @Nullable IntFunction<? extends T> sizedFactory) {
         super(clazz);
         this.factory = factory;
+        this.sizedFactory = sizedFactory;
     }
 
     public HandleSimpleMap(Class<? extends T> clazz, Supplier<? extends T> factory, Registry registry,
                            Type... types) throws NoHandlerFoundException {
+        this(clazz, factory, null, registry, types);
+    }
+
+    public HandleSimpleMap(Class<? extends T> clazz, Supplier<? extends T> factory,
+                           @Nullable IntFunction<? extends T> sizedFactory, Registry registry,
+                           Type... types) throws NoHandlerFoundException {
         super(clazz, registry, types);
         this.factory = factory;
+        this.sizedFactory = sizedFactory;
     }
 
     @Override
@@ -37,8 +58,14 @@ public class HandleSimpleMap<T extends Map> extends HandleMap<T> {
         return factory.get();
     }
 
+    @Override
+    protected T createMap(int size) {
+        final IntFunction<@NonnullType ? extends T> sized = sizedFactory;
+        return sized != null ? sized.apply(size) : factory.get();
+    }
+
     @Override
     protected IHandler<? extends T> create(Registry registry, Type... types) throws NoHandlerFoundException {
-        return new HandleSimpleMap<>(clazz, factory, registry, types);
+        return new HandleSimpleMap<>(clazz, factory, sizedFactory, registry, types);
     }
 }
@@ -0,0 +1,188 @@
+package info.loenwind.autosave.handlers.minecraft;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.common.util.Constants;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.util.HandleGenericType;
+import info.loenwind.autosave.util.Log;
+import info.loenwind.autosave.util.NBTAction;
+import info.loenwind.autosave.util.TypeUtil;
+
+/**
+ * A compact handler for collections and arrays of {@link BlockPos} that are close to each other, e.g. the blocks of a
+ * multiblock or a pipe network.
+ * <p>
+ * It is not registered, use it with <code>@Store(handler = HandleBlockPosDeltas.class)</code> on fields of type
+ * <code>BlockPos[]</code> or a collection of <code>BlockPos</code> (e.g. <code>List&lt;BlockPos&gt;</code>).
+ * <p>
+ * The positions are stored as a byte array of zigzag-encoded varints: the number of positions, followed by the
+ * coordinate differences (x, y, z) of each position to the one before it. The first position is relative to the
+ * origin. Neighbouring positions take 3 bytes instead of the 8 bytes of {@link BlockPos#toLong()}.
+ * <p>
+ * Collections and arrays that contain <code>null</code> are left to the regular handlers, and data written by them can
+ * still be read.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class HandleBlockPosDeltas implements IHandler<Object> {
+
+    private final @Nullable Class<?> targetClass;
+
+    public HandleBlockPosDeltas() {
+        this(null);
+    }
+
+    protected HandleBlockPosDeltas(@Nullable Class<?> targetClass) {
+        this.targetClass = targetClass;
+    }
+
+    @Override
+    public @Nullable IHandler<?> getHandler(Registry registry, Type type) {
+        Class<?> clazz = TypeUtil.toClass(type);
+        if (clazz == BlockPos[].class) {
+            return new HandleBlockPosDeltas(clazz);
+        }
+        if (Collection.class.isAssignableFrom(clazz) && type instanceof ParameterizedType) {
+            Type[] types = ((ParameterizedType) type).getActualTypeArguments();
+            if (types.length == 1 && types[0] != null && TypeUtil.toClass(types[0]) == BlockPos.class) {
+                return new HandleBlockPosDeltas(clazz);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                         Object object) throws IllegalArgumentException, IllegalAccessException,
+                                        InstantiationException, NoHandlerFoundException {
+        Collection<?> positions = object instanceof Object[] ? Arrays.asList((Object[]) object) :
+                (Collection<?>) object;
+        // Most deltas fit into one byte per coordinate
+        byte[] data = new byte[5 + positions.size() * 3];
+        int length = writeVarInt(data, 0, positions.size());
+        int x = 0, y = 0, z = 0;
+        for (Object elem : positions) {
+            if (elem == null) {
+                return false;
+            }
+            BlockPos pos = (BlockPos) elem;
+            if (data.length - length < 15) {
+                data = Arrays.copyOf(data, data.length * 2 + 15);
+            }
+            length = writeVarInt(data, length, zigzag(pos.getX() - x));
+            length = writeVarInt(data, length, zigzag(pos.getY() - y));
+            length = writeVarInt(data, length, zigzag(pos.getZ() - z));
+            x = pos.getX();
+            y = pos.getY();
+            z = pos.getZ();
+        }
+        nbt.setByteArray(name, Arrays.copyOf(data, length));
+        return true;
+    }
+
+    @Override
+    public @Nullable Object read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                                 @Nullable Object object) throws IllegalArgumentException, IllegalAccessException,
+                                                          InstantiationException, NoHandlerFoundException {
+        final Class<?> clazz = targetClass;
+        if (clazz == null || !nbt.hasKey(name, Constants.NBT.TAG_BYTE_ARRAY)) {
+            // Not written by this handler, let the regular handlers read it
+            return null;
+        }
+        DeltaReader in = new DeltaReader(nbt.getByteArray(name));
+        int size = in.next();
+        if (size < 0 || size > in.data.length / 3) {
+            // Every position takes at least 3 bytes
+            Log.error("Found invalid position data! Data: ", nbt, "   Type: ", type);
+            return object;
+        }
+        if (clazz.isArray()) {
+            BlockPos[] array = object instanceof BlockPos[] && ((BlockPos[]) object).length == size ?
+                    (BlockPos[]) object : new BlockPos[size];
+            int x = 0, y = 0, z = 0;
+            for (int i = 0; i < size; i++) {
+                x += unzigzag(in.next());
+                y += unzigzag(in.next());
+                z += unzigzag(in.next());
+                if (array[i] instanceof BlockPos.MutableBlockPos) {
+                    ((BlockPos.MutableBlockPos) array[i]).setPos(x, y, z);
+                } else {
+                    array[i] = new BlockPos(x, y, z);
+                }
+            }
+            return array;
+        }
+        Collection collection = object instanceof Collection ? (Collection) object : createCollection(clazz, size);
+        collection.clear();
+        int x = 0, y = 0, z = 0;
+        for (int i = 0; i < size; i++) {
+            x += unzigzag(in.next());
+            y += unzigzag(in.next());
+            z += unzigzag(in.next());
+            collection.add(new BlockPos(x, y, z));
+        }
+        return collection;
+    }
+
+    private static Collection createCollection(Class<?> clazz, int size) throws InstantiationException,
+                                                                          IllegalAccessException {
+        if (clazz.isAssignableFrom(ArrayList.class)) {
+            return new ArrayList(size);
+        } else if (clazz.isAssignableFrom(HashSet.class)) {
+            return new HashSet(HandleGenericType.hashCapacity(size));
+        }
+        return (Collection) clazz.newInstance();
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarInt(byte[] data, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            data[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static final class DeltaReader {
+
+        private final byte[] data;
+        private int offset = 0;
+
+        DeltaReader(byte[] data) {
+            this.data = data;
+        }
+
+        int next() {
+            int value = 0;
+            for (int shift = 0; offset < data.length && shift < 35; shift += 7) {
+                byte b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            return value;
+        }
+    }
+}
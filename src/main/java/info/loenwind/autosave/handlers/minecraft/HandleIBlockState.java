@@ -1,21 +1,49 @@
 package info.loenwind.autosave.handlers.minecraft;
 
 import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTUtil;
+import net.minecraftforge.common.util.Constants;
 
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.exceptions.NoHandlerFoundException;
 import info.loenwind.autosave.handlers.IHandler;
 import info.loenwind.autosave.util.NBTAction;
 
+/**
+ * Handler for {@link IBlockState}s.
+ * <p>
+ * Data that is only synced to the client contains the numeric state id (see {@link Block#getStateId(IBlockState)}),
+ * as client and server share those while connected. Everything else, and states the id does not read back as (their
+ * properties are not all kept in the metadata), contains the block name and properties (see
+ * {@link NBTUtil#writeBlockState(NBTTagCompound, IBlockState)}). Both are read in any phase.
+ */
 public class HandleIBlockState implements IHandler<IBlockState> {
 
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * The most recently read states by their NBT, so a state that is read over and over does not have its name and
+     * properties parsed every time.
+     */
+    private static final Map<NBTTagCompound, IBlockState> CACHE = new LinkedHashMap<NBTTagCompound, IBlockState>(
+            CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<NBTTagCompound, IBlockState> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
     public HandleIBlockState() {}
 
     @Override
@@ -28,6 +56,14 @@ public class HandleIBlockState implements IHandler<IBlockState> {
                          IBlockState object)
                                              throws IllegalArgumentException, IllegalAccessException,
                                              InstantiationException, NoHandlerFoundException {
+        if (NBTAction.isClientOnly(phase)) {
+            int id = Block.getStateId(object);
+            // Ids only hold the metadata, states that differ in properties that are not stored in it need the name
+            if (Block.getStateById(id) == object) {
+                nbt.setInteger(name, id);
+                return true;
+            }
+        }
         NBTTagCompound tag = new NBTTagCompound();
         NBTUtil.writeBlockState(tag, object);
         nbt.setTag(name, tag);
@@ -40,6 +76,27 @@ public class HandleIBlockState implements IHandler<IBlockState> {
                                       @Nullable IBlockState object) throws IllegalArgumentException,
                                                                     IllegalAccessException, InstantiationException,
                                                                     NoHandlerFoundException {
-        return NBTUtil.readBlockState(nbt.getCompoundTag(name));
+        if (nbt.hasKey(name, Constants.NBT.TAG_INT)) {
+            return Block.getStateById(nbt.getInteger(name));
+        }
+        return readBlockState(nbt.getCompoundTag(name));
+    }
+
+    /**
+     * Same as {@link NBTUtil#readBlockState(NBTTagCompound)}, but looks up recently read states first.
+     */
+    public static IBlockState readBlockState(NBTTagCompound tag) {
+        synchronized (CACHE) {
+            IBlockState state = CACHE.get(tag);
+            if (state != null) {
+                return state;
+            }
+        }
+        IBlockState state = NBTUtil.readBlockState(tag);
+        synchronized (CACHE) {
+            // Copied, as the caller may change the tag afterwards
+            CACHE.put(tag.copy(), state);
+        }
+        return state;
     }
 }
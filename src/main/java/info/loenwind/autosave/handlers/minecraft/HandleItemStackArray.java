@@ -0,0 +1,59 @@
+package info.loenwind.autosave.handlers.minecraft;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.java.HandleArrays;
+import info.loenwind.autosave.handlers.util.InventoryList;
+import info.loenwind.autosave.util.NBTAction;
+
+/**
+ * Handler for <code>ItemStack[]</code>, which are stored like an inventory, see {@link InventoryList}. Arrays in the
+ * format of {@link HandleArrays} can still be read.
+ * <p>
+ * This must be registered before {@link HandleArrays}.
+ */
+public class HandleItemStackArray implements IHandler<ItemStack[]> {
+
+    public HandleItemStackArray() {}
+
+    @Override
+    public Class<?> getRootType() {
+        return ItemStack[].class;
+    }
+
+    @Override
+    public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                         ItemStack[] object) throws IllegalArgumentException, IllegalAccessException,
+                                             InstantiationException, NoHandlerFoundException {
+        nbt.setTag(name, InventoryList.write(object.length, i -> object[i]));
+        return true;
+    }
+
+    @Override
+    public @Nullable ItemStack[] read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type,
+                                      String name, @Nullable ItemStack[] object) throws IllegalArgumentException,
+                                                                                 IllegalAccessException,
+                                                                                 InstantiationException,
+                                                                                 NoHandlerFoundException {
+        if (!InventoryList.isInventory(nbt, name)) {
+            // Not written by this handler, let HandleArrays read it
+            return null;
+        }
+        NBTTagCompound tag = nbt.getCompoundTag(name);
+        int size = InventoryList.getSize(tag);
+        ItemStack[] result = object != null && object.length == size ? object : new ItemStack[size];
+        Arrays.fill(result, ItemStack.EMPTY);
+        InventoryList.read(tag, size, (stack, slot) -> result[slot] = stack);
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package info.loenwind.autosave.handlers.minecraft;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.NonNullList;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.exceptions.NoHandlerFoundException;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.util.InventoryList;
+import info.loenwind.autosave.util.NBTAction;
+import info.loenwind.autosave.util.TypeUtil;
+
+/**
+ * Handler for <code>NonNullList&lt;ItemStack&gt;</code>, which are stored like an inventory, see {@link InventoryList}.
+ * <p>
+ * Lists of the right size are filled in place.
+ */
+public class HandleNonNullList implements IHandler<NonNullList<ItemStack>> {
+
+    public HandleNonNullList() {}
+
+    @Override
+    public @Nullable IHandler<NonNullList<ItemStack>> getHandler(Registry registry, Type type) {
+        if (TypeUtil.toClass(type) == NonNullList.class && type instanceof ParameterizedType) {
+            Type[] types = ((ParameterizedType) type).getActualTypeArguments();
+            if (types.length == 1 && types[0] == ItemStack.class) {
+                return this;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                         NonNullList<ItemStack> object) throws IllegalArgumentException, IllegalAccessException,
+                                                        InstantiationException, NoHandlerFoundException {
+        nbt.setTag(name, InventoryList.write(object.size(), object::get));
+        return true;
+    }
+
+    @Override
+    public @Nullable NonNullList<ItemStack> read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt,
+                                                 Type type, String name, @Nullable NonNullList<ItemStack> object)
+                                                                                                                 throws IllegalArgumentException,
+                                                                                                                 IllegalAccessException,
+                                                                                                                 InstantiationException,
+                                                                                                                 NoHandlerFoundException {
+        if (!InventoryList.isInventory(nbt, name)) {
+            return object;
+        }
+        NBTTagCompound tag = nbt.getCompoundTag(name);
+        int size = InventoryList.getSize(tag);
+        NonNullList<ItemStack> result;
+        if (object != null && object.size() == size) {
+            result = object;
+            for (int i = 0; i < size; i++) {
+                result.set(i, ItemStack.EMPTY);
+            }
+        } else {
+            result = NonNullList.withSize(size, ItemStack.EMPTY);
+        }
+        InventoryList.read(tag, size, (stack, slot) -> result.set(slot, stack));
+        return result;
+    }
+}
@@ -0,0 +1,146 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+import info.loenwind.autosave.util.NullHelper;
+
+/**
+ * Encodes the elements of a collection or array as an {@link NBTTagList}.
+ * <p>
+ * Each element is stored by its handlers into a compound under the key {@link #ELEMENT_KEY}. If every element ends
+ * up as a single tag of the same type (and that type is not a compound), the list simply contains those tags
+ * ("bare" list). Otherwise the list contains the compounds themselves ("wrapped" list), which keeps any extra keys
+ * the handlers wrote; an empty compound marks a <code>null</code> element.
+ * <p>
+ * Readers can tell the legacy format (a compound with a "size" and one key per index) from this one by the tag type.
+ */
+public final class ElementList {
+
+    /**
+     * The key elements are stored under.
+     */
+    public static final @Nonnull String ELEMENT_KEY = "";
+
+    private ElementList() {}
+
+    /**
+     * Builds the {@link NBTTagList} for a sequence of elements.
+     * <p>
+     * For each element, call {@link #next()} and store the element (if it is not <code>null</code>) into the returned
+     * compound under {@link #ELEMENT_KEY}. Then call {@link #build()} to get the list.
+     */
+    public static final class Builder {
+
+        private @Nullable NBTTagCompound current = null;
+        /**
+         * The element tags while the list can still be bare. <code>null</code> once it has to be wrapped.
+         */
+        private @Nullable List<NBTBase> bare;
+        private int bareType = Constants.NBT.TAG_END;
+        private final @Nonnull NBTTagList wrapped = new NBTTagList();
+
+        public Builder(int expectedSize) {
+            bare = new ArrayList<>(expectedSize);
+        }
+
+        public NBTTagCompound next() {
+            finishCurrent();
+            NBTTagCompound tag = new NBTTagCompound();
+            current = tag;
+            return tag;
+        }
+
+        private void finishCurrent() {
+            final NBTTagCompound tag = current;
+            if (tag == null) {
+                return;
+            }
+            current = null;
+            final List<NBTBase> bareList = bare;
+            if (bareList != null) {
+                NBTBase element = tag.getSize() == 1 ? tag.getTag(ELEMENT_KEY) : null;
+                if (element != null && element.getId() != Constants.NBT.TAG_COMPOUND &&
+                        (bareType == Constants.NBT.TAG_END || bareType == element.getId())) {
+                    bareType = element.getId();
+                    bareList.add(element);
+                    return;
+                }
+                // Cannot be expressed as a bare list, switch to wrapping all elements
+                for (NBTBase previous : bareList) {
+                    NBTTagCompound wrapper = new NBTTagCompound();
+                    wrapper.setTag(ELEMENT_KEY, NullHelper.notnullJ(previous, "List#get"));
+                    wrapped.appendTag(wrapper);
+                }
+                bare = null;
+            }
+            wrapped.appendTag(tag);
+        }
+
+        public NBTTagList build() {
+            finishCurrent();
+            final List<NBTBase> bareList = bare;
+            if (bareList != null) {
+                NBTTagList list = new NBTTagList();
+                for (NBTBase element : bareList) {
+                    list.appendTag(NullHelper.notnullJ(element, "List#get"));
+                }
+                return list;
+            }
+            return wrapped;
+        }
+    }
+
+    /**
+     * Gives access to the elements of a list that was written by a {@link Builder}.
+     */
+    public static final class View {
+
+        private final @Nonnull NBTTagList list;
+        private final boolean isWrapped;
+        private final @Nonnull NBTTagCompound scratch = new NBTTagCompound();
+
+        public View(NBTTagList list) {
+            this.list = list;
+            this.isWrapped = list.getTagType() == Constants.NBT.TAG_COMPOUND;
+        }
+
+        public int size() {
+            return list.tagCount();
+        }
+
+        /**
+         * Returns a compound that contains the element at the given index under {@link #ELEMENT_KEY}, or
+         * <code>null</code> if the element is <code>null</code>.
+         * <p>
+         * Note: For bare lists, the same compound is returned for every index.
+         */
+        public @Nullable NBTTagCompound get(int index) {
+            if (isWrapped) {
+                NBTTagCompound tag = list.getCompoundTagAt(index);
+                return tag.hasNoTags() ? null : tag;
+            }
+            scratch.setTag(ELEMENT_KEY, NullHelper.notnullM(list.get(index), "NBTTagList#get"));
+            return scratch;
+        }
+    }
+
+    /**
+     * Returns the list stored under the given name if it is in this format, or <code>null</code> if it is not (e.g.
+     * because it is in the legacy format).
+     */
+    public static @Nullable View read(NBTTagCompound nbt, String name) {
+        if (nbt.getTagId(name) == Constants.NBT.TAG_LIST) {
+            return new View((NBTTagList) nbt.getTag(name));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTBase;
+
+import info.loenwind.autosave.handlers.IHandler;
+
+/**
+ * Packs sequences of elements of one type into a single tag instead of one tag per element.
+ * <p>
+ * The collection, map and array handlers use a packing when {@link #forHandlers(Type, List)} finds one for their
+ * element type, and fall back to an {@link ElementList} otherwise.
+ */
+@SuppressWarnings("rawtypes")
+public interface ElementPacking {
+
+    /**
+     * Returns the packing for elements of the given type that are handled by the given handlers, or <code>null</code>
+     * if they cannot be packed.
+     */
+    static @Nullable ElementPacking forHandlers(Type type, @Nullable List<IHandler> handlers) {
+        ElementPacking packing = PackedPrimitives.forHandlers(handlers);
+        if (packing == null) {
+            packing = PackedEnums.forHandlers(type, handlers);
+        }
+        if (packing == null) {
+            packing = PackedBlockPos.forHandlers(handlers);
+        }
+        if (packing == null) {
+            packing = PackedItemStacks.forHandlers(handlers);
+        }
+        if (packing == null) {
+            packing = PackedBlockStates.forHandlers(handlers);
+        }
+        return packing;
+    }
+
+    /**
+     * Packs the elements of the collection into one tag.
+     *
+     * @return The tag, or <code>null</code> if the collection contains an element this packing cannot store (e.g.
+     *         <code>null</code>)
+     */
+    @Nullable
+    NBTBase pack(Collection<?> collection);
+
+    /**
+     * Returns the number of elements packed into the tag, or -1 if the tag was not written by this packing.
+     */
+    int size(NBTBase tag);
+
+    /**
+     * Adds the elements packed into the tag to the collection. The tag must have been checked with
+     * {@link #size(NBTBase)}.
+     */
+    void unpack(NBTBase tag, Collection<Object> collection);
+
+    /**
+     * Unpacks the elements of the tag into the array. The tag must have been checked with {@link #size(NBTBase)}, and
+     * the array must be large enough.
+     */
+    default void unpack(NBTBase tag, Object[] array) {
+        List<Object> elements = new ArrayList<>(array.length);
+        unpack(tag, elements);
+        elements.toArray(array);
+    }
+}
@@ -60,6 +60,14 @@ public abstract class HandleGenericType<T> implements IHandler<T> {
         }
     }
 
+    /**
+     * Returns the initial capacity a hash based collection needs to hold the given number of elements without
+     * rehashing (at the default load factor).
+     */
+    public static int hashCapacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / .75f) + 1;
+    }
+
     @Override
     public final Class<?> getRootType() {
         return clazz;
@@ -0,0 +1,125 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+import javax.annotation.Nonnull;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * Encodes a fixed number of {@link ItemStack} slots in the format of Forge's
+ * {@link net.minecraftforge.items.ItemStackHandler}: A compound with the number of slots under {@link #SIZE} and a list
+ * of the non-empty slots under {@link #ITEMS}. Each list entry is the stack with its slot index under {@link #SLOT}.
+ * <p>
+ * The slot index is a byte for up to 128 slots and a short for up to 32768 slots (an int beyond that), so it reads as
+ * the same number everywhere.
+ * <p>
+ * If some of the stacks are the same, each distinct stack is written only once instead. The compound then contains a
+ * list of the distinct stacks (without their count) under {@link #PALETTE}, and an int array of
+ * <code>{ slot, palette index, count }</code> triples for the non-empty slots under {@link #SLOTS}. Forge cannot read
+ * this, so {@link net.minecraftforge.items.ItemStackHandler}s are not written with it.
+ */
+public final class InventoryList {
+
+    public static final @Nonnull String SIZE = "Size";
+    public static final @Nonnull String ITEMS = "Items";
+    public static final @Nonnull String SLOT = "Slot";
+    public static final @Nonnull String PALETTE = "Palette";
+    public static final @Nonnull String SLOTS = "Slots";
+
+    private InventoryList() {}
+
+    public static NBTTagCompound write(int size, IntFunction<ItemStack> slots) {
+        int[] slotIndices = new int[size];
+        int[] counts = new int[size];
+        int[] refs = new int[size];
+        NBTTagCompound[] items = new NBTTagCompound[size];
+        ItemStackPalette palette = new ItemStackPalette();
+        int used = 0;
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = slots.apply(i);
+            if (stack != null && !stack.isEmpty()) {
+                NBTTagCompound item = ItemStackPalette.writeWithoutCount(stack);
+                slotIndices[used] = i;
+                counts[used] = stack.getCount();
+                refs[used] = palette.indexOf(item);
+                items[used] = item;
+                used++;
+            }
+        }
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setInteger(SIZE, size);
+        if (palette.size() < used) {
+            // Some stacks are the same, write them only once
+            int[] entries = new int[used * 3];
+            for (int i = 0; i < used; i++) {
+                entries[i * 3] = slotIndices[i];
+                entries[i * 3 + 1] = refs[i];
+                entries[i * 3 + 2] = counts[i];
+            }
+            tag.setTag(PALETTE, palette.getEntries());
+            tag.setIntArray(SLOTS, entries);
+            return tag;
+        }
+        NBTTagList list = new NBTTagList();
+        for (int i = 0; i < used; i++) {
+            NBTTagCompound item = items[i];
+            if (size <= Byte.MAX_VALUE + 1) {
+                item.setByte(SLOT, (byte) slotIndices[i]);
+            } else if (size <= Short.MAX_VALUE + 1) {
+                item.setShort(SLOT, (short) slotIndices[i]);
+            } else {
+                item.setInteger(SLOT, slotIndices[i]);
+            }
+            item.setByte(ItemStackPalette.COUNT, (byte) counts[i]);
+            list.appendTag(item);
+        }
+        tag.setTag(ITEMS, list);
+        return tag;
+    }
+
+    /**
+     * Checks if the tag stored under the given name is in this format.
+     */
+    public static boolean isInventory(NBTTagCompound nbt, String name) {
+        if (!nbt.hasKey(name, Constants.NBT.TAG_COMPOUND)) {
+            return false;
+        }
+        NBTTagCompound tag = nbt.getCompoundTag(name);
+        return tag.hasKey(ITEMS, Constants.NBT.TAG_LIST) || tag.hasKey(SLOTS, Constants.NBT.TAG_INT_ARRAY);
+    }
+
+    public static int getSize(NBTTagCompound tag) {
+        return Math.max(0, tag.getInteger(SIZE));
+    }
+
+    /**
+     * Hands the non-empty stacks to the consumer, together with their slot index. Slots outside of the given size are
+     * skipped.
+     */
+    public static void read(NBTTagCompound tag, int size, ObjIntConsumer<ItemStack> slots) {
+        if (tag.hasKey(SLOTS, Constants.NBT.TAG_INT_ARRAY)) {
+            ItemStack[] palette = ItemStackPalette.decode(tag.getTagList(PALETTE, Constants.NBT.TAG_COMPOUND));
+            int[] entries = tag.getIntArray(SLOTS);
+            for (int i = 0; i + 2 < entries.length; i += 3) {
+                int slot = entries[i];
+                if (slot >= 0 && slot < size) {
+                    slots.accept(ItemStackPalette.get(palette, entries[i + 1], entries[i + 2]), slot);
+                }
+            }
+            return;
+        }
+        NBTTagList items = tag.getTagList(ITEMS, Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < items.tagCount(); i++) {
+            NBTTagCompound item = items.getCompoundTagAt(i);
+            int slot = item.getInteger(SLOT);
+            if (slot >= 0 && slot < size) {
+                slots.accept(new ItemStack(item), slot);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+
+/**
+ * A palette of the distinct stacks (item, meta, tag and capabilities) of one payload. Each is written once as the NBT
+ * of the stack without its {@link #COUNT}, and referred to by its index.
+ */
+final class ItemStackPalette {
+
+    /**
+     * The key vanilla writes the stack size to.
+     */
+    static final @Nonnull String COUNT = "Count";
+
+    private final Map<NBTTagCompound, Integer> indices = new HashMap<>();
+    private final NBTTagList entries = new NBTTagList();
+
+    /**
+     * Writes the stack without its count. The stack must not be empty.
+     */
+    static NBTTagCompound writeWithoutCount(ItemStack stack) {
+        NBTTagCompound tag = stack.writeToNBT(new NBTTagCompound());
+        tag.removeTag(COUNT);
+        return tag;
+    }
+
+    /**
+     * Returns the index of the given stack NBT (as returned by {@link #writeWithoutCount(ItemStack)}), adding it if it
+     * is new. The tag must not be changed afterwards.
+     */
+    int indexOf(NBTTagCompound tag) {
+        Integer index = indices.get(tag);
+        if (index == null) {
+            index = entries.tagCount();
+            indices.put(tag, index);
+            entries.appendTag(tag);
+        }
+        return index;
+    }
+
+    int size() {
+        return entries.tagCount();
+    }
+
+    NBTTagList getEntries() {
+        return entries;
+    }
+
+    /**
+     * Decodes each entry of a palette once. The stacks have a count of 1 and must be copied before use, see
+     * {@link #get(ItemStack[], int, int)}.
+     */
+    static ItemStack[] decode(NBTTagList palette) {
+        ItemStack[] result = new ItemStack[palette.tagCount()];
+        for (int i = 0; i < result.length; i++) {
+            NBTTagCompound tag = palette.getCompoundTagAt(i).copy();
+            tag.setByte(COUNT, (byte) 1);
+            result[i] = new ItemStack(tag);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new stack of the decoded palette entry with the given count, or {@link ItemStack#EMPTY} for invalid
+     * indices and counts.
+     */
+    static ItemStack get(ItemStack[] decoded, int index, int count) {
+        if (index < 0 || index >= decoded.length || count <= 0 || decoded[index].isEmpty()) {
+            return ItemStack.EMPTY;
+        }
+        ItemStack stack = decoded[index].copy();
+        stack.setCount(count);
+        return stack;
+    }
+}
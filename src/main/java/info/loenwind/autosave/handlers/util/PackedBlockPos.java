@@ -0,0 +1,104 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.util.math.BlockPos;
+
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.minecraft.HandleBlockPos;
+import info.loenwind.autosave.util.LongArrayUtil;
+
+/**
+ * Packs sequences of {@link BlockPos} into a single long array tag, one {@link BlockPos#toLong()} per element.
+ * <p>
+ * This is only used when the first handler for the element type is the built-in {@link HandleBlockPos}. Sequences that
+ * contain <code>null</code> cannot be packed.
+ */
+@SuppressWarnings("rawtypes")
+public enum PackedBlockPos implements ElementPacking {
+
+    INSTANCE;
+
+    // The bit layout of BlockPos#toLong()
+    private static final int X_BITS = 26;
+    private static final int Z_BITS = 26;
+    private static final int Y_BITS = 64 - X_BITS - Z_BITS;
+    private static final int Y_SHIFT = Z_BITS;
+    private static final int X_SHIFT = Y_SHIFT + Y_BITS;
+
+    /**
+     * Returns the packing for elements that are handled by the given handlers, or <code>null</code> if they cannot be
+     * packed.
+     */
+    public static @Nullable PackedBlockPos forHandlers(@Nullable List<IHandler> handlers) {
+        if (handlers == null || handlers.isEmpty() || handlers.get(0).getClass() != HandleBlockPos.class) {
+            return null;
+        }
+        return INSTANCE;
+    }
+
+    public static int getX(long packed) {
+        return (int) (packed << (64 - X_SHIFT - X_BITS) >> (64 - X_BITS));
+    }
+
+    public static int getY(long packed) {
+        return (int) (packed << (64 - Y_SHIFT - Y_BITS) >> (64 - Y_BITS));
+    }
+
+    public static int getZ(long packed) {
+        return (int) (packed << (64 - Z_BITS) >> (64 - Z_BITS));
+    }
+
+    @Override
+    public @Nullable NBTBase pack(Collection<?> collection) {
+        long[] data = new long[collection.size()];
+        int i = 0;
+        for (Object elem : collection) {
+            if (elem == null) {
+                return null;
+            }
+            data[i++] = ((BlockPos) elem).toLong();
+        }
+        return LongArrayUtil.create(data);
+    }
+
+    @Override
+    public int size(NBTBase tag) {
+        return LongArrayUtil.size(tag);
+    }
+
+    @Override
+    public void unpack(NBTBase tag, Collection<Object> collection) {
+        long[] data = LongArrayUtil.get(tag);
+        if (data != null) {
+            for (long v : data) {
+                collection.add(BlockPos.fromLong(v));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * {@link BlockPos.MutableBlockPos}es that are already in the array are updated instead of being replaced.
+     */
+    @Override
+    public void unpack(NBTBase tag, Object[] array) {
+        long[] data = LongArrayUtil.get(tag);
+        if (data == null) {
+            return;
+        }
+        for (int i = 0; i < data.length; i++) {
+            Object previous = array[i];
+            if (previous instanceof BlockPos.MutableBlockPos) {
+                ((BlockPos.MutableBlockPos) previous).setPos(getX(data[i]), getY(data[i]), getZ(data[i]));
+            } else {
+                array[i] = BlockPos.fromLong(data[i]);
+            }
+        }
+    }
+}
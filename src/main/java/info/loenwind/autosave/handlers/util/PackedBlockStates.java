@@ -0,0 +1,125 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTUtil;
+import net.minecraftforge.common.util.Constants;
+
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.minecraft.HandleIBlockState;
+import info.loenwind.autosave.util.LongArrayUtil;
+
+/**
+ * Packs sequences of {@link IBlockState}s like a chunk section does.
+ * <p>
+ * The distinct states are written once each (as {@link NBTUtil#writeBlockState(NBTTagCompound, IBlockState)} does)
+ * into a list under {@link #PALETTE}. The elements are palette indices plus one (0 marks <code>null</code>), packed
+ * into a long array under {@link #STATES} with as few bits per entry as the palette size allows. Entries do not span
+ * two longs. The number of elements is stored under {@link #SIZE}.
+ * <p>
+ * This is only used when the first handler for the element type is the built-in {@link HandleIBlockState}.
+ */
+@SuppressWarnings("rawtypes")
+public enum PackedBlockStates implements ElementPacking {
+
+    INSTANCE;
+
+    public static final @Nonnull String PALETTE = "Palette";
+    public static final @Nonnull String STATES = "States";
+    public static final @Nonnull String SIZE = "Size";
+
+    /**
+     * Returns the packing for elements that are handled by the given handlers, or <code>null</code> if they cannot be
+     * packed.
+     */
+    public static @Nullable PackedBlockStates forHandlers(@Nullable List<IHandler> handlers) {
+        if (handlers == null || handlers.isEmpty() || handlers.get(0).getClass() != HandleIBlockState.class) {
+            return null;
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the number of bits needed for the entries of a palette of the given size.
+     */
+    static int bitsPerEntry(int paletteSize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(paletteSize));
+    }
+
+    @Override
+    public NBTBase pack(Collection<?> collection) {
+        Map<IBlockState, Integer> indices = new HashMap<>();
+        NBTTagList palette = new NBTTagList();
+        int[] entries = new int[collection.size()];
+        int i = 0;
+        for (Object elem : collection) {
+            if (elem != null) {
+                Integer index = indices.get(elem);
+                if (index == null) {
+                    palette.appendTag(NBTUtil.writeBlockState(new NBTTagCompound(), (IBlockState) elem));
+                    index = palette.tagCount();
+                    indices.put((IBlockState) elem, index);
+                }
+                entries[i] = index;
+            }
+            i++;
+        }
+        int bits = bitsPerEntry(palette.tagCount());
+        int perLong = 64 / bits;
+        long[] data = new long[(entries.length + perLong - 1) / perLong];
+        for (i = 0; i < entries.length; i++) {
+            data[i / perLong] |= (long) entries[i] << (i % perLong) * bits;
+        }
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag(PALETTE, palette);
+        tag.setInteger(SIZE, entries.length);
+        LongArrayUtil.set(tag, STATES, data);
+        return tag;
+    }
+
+    @Override
+    public int size(NBTBase tag) {
+        if (tag.getId() != Constants.NBT.TAG_COMPOUND) {
+            return -1;
+        }
+        NBTTagCompound compound = (NBTTagCompound) tag;
+        int size = compound.getInteger(SIZE);
+        int perLong = 64 / bitsPerEntry(compound.getTagList(PALETTE, Constants.NBT.TAG_COMPOUND).tagCount());
+        int longs = LongArrayUtil.size(compound.getTag(STATES));
+        return size >= 0 && longs >= 0 && (long) longs * perLong >= size ? size : -1;
+    }
+
+    @Override
+    public void unpack(NBTBase tag, Collection<Object> collection) {
+        NBTTagCompound compound = (NBTTagCompound) tag;
+        NBTTagList palette = compound.getTagList(PALETTE, Constants.NBT.TAG_COMPOUND);
+        // Resolving a state is expensive, do it once per palette entry
+        IBlockState[] states = new IBlockState[palette.tagCount() + 1];
+        for (int i = 0; i < palette.tagCount(); i++) {
+            states[i + 1] = HandleIBlockState.readBlockState(palette.getCompoundTagAt(i));
+        }
+        long[] data = LongArrayUtil.get(compound, STATES);
+        if (data == null) {
+            return;
+        }
+        int bits = bitsPerEntry(palette.tagCount());
+        int perLong = 64 / bits;
+        long mask = (1L << bits) - 1;
+        int size = compound.getInteger(SIZE);
+        for (int i = 0; i < size; i++) {
+            int entry = (int) (data[i / perLong] >>> (i % perLong) * bits & mask);
+            // Indices beyond the palette can only come from broken data, read them as null
+            collection.add(entry < states.length ? states[entry] : null);
+        }
+    }
+}
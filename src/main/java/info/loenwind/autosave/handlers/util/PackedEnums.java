@@ -0,0 +1,110 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraftforge.common.util.Constants;
+
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.java.HandleEnum;
+import info.loenwind.autosave.util.TypeUtil;
+
+/**
+ * Packs sequences of enum values into a single array tag, one entry per element. An entry is the ordinal plus one, 0
+ * marks <code>null</code>.
+ * <p>
+ * Enums with less than 255 constants use a byte array, larger ones an int array.
+ */
+@SuppressWarnings("rawtypes")
+public final class PackedEnums implements ElementPacking {
+
+    private final Enum<?>[] values;
+    private final boolean small;
+
+    private PackedEnums(Enum<?>[] values) {
+        this.values = values;
+        this.small = values.length < 255;
+    }
+
+    /**
+     * Returns the packing for elements of the given type that are handled by the given handlers, or <code>null</code>
+     * if they cannot be packed.
+     * <p>
+     * This is only the case if the type is an enum and the first handler is the built-in {@link HandleEnum}.
+     */
+    public static @Nullable PackedEnums forHandlers(Type type, @Nullable List<IHandler> handlers) {
+        if (handlers == null || handlers.isEmpty() || handlers.get(0).getClass() != HandleEnum.class ||
+                !(type instanceof Class) || !((Class<?>) type).isEnum()) {
+            return null;
+        }
+        Enum<?>[] values = TypeUtil.getEnumConstants((Class<?>) type);
+        return values.length > 0 ? new PackedEnums(values) : null;
+    }
+
+    @Override
+    public NBTBase pack(Collection<?> collection) {
+        if (small) {
+            byte[] data = new byte[collection.size()];
+            int i = 0;
+            for (Object elem : collection) {
+                data[i++] = (byte) (elem == null ? 0 : ((Enum) elem).ordinal() + 1);
+            }
+            return new NBTTagByteArray(data);
+        }
+        int[] data = new int[collection.size()];
+        int i = 0;
+        for (Object elem : collection) {
+            data[i++] = elem == null ? 0 : ((Enum) elem).ordinal() + 1;
+        }
+        return new NBTTagIntArray(data);
+    }
+
+    @Override
+    public int size(NBTBase tag) {
+        if (small && tag.getId() == Constants.NBT.TAG_BYTE_ARRAY) {
+            return ((NBTTagByteArray) tag).getByteArray().length;
+        } else if (!small && tag.getId() == Constants.NBT.TAG_INT_ARRAY) {
+            return ((NBTTagIntArray) tag).getIntArray().length;
+        }
+        return -1;
+    }
+
+    @Override
+    public void unpack(NBTBase tag, Collection<Object> collection) {
+        if (small) {
+            for (byte b : ((NBTTagByteArray) tag).getByteArray()) {
+                collection.add(get(b & 0xFF));
+            }
+        } else {
+            for (int v : ((NBTTagIntArray) tag).getIntArray()) {
+                collection.add(get(v));
+            }
+        }
+    }
+
+    @Override
+    public void unpack(NBTBase tag, Object[] array) {
+        if (small) {
+            byte[] data = ((NBTTagByteArray) tag).getByteArray();
+            for (int i = 0; i < data.length; i++) {
+                array[i] = get(data[i] & 0xFF);
+            }
+        } else {
+            int[] data = ((NBTTagIntArray) tag).getIntArray();
+            for (int i = 0; i < data.length; i++) {
+                array[i] = get(data[i]);
+            }
+        }
+    }
+
+    private @Nullable Enum<?> get(int entry) {
+        // Unknown ordinals (the enum lost constants) read as null
+        return entry > 0 && entry <= values.length ? values[entry - 1] : null;
+    }
+}
@@ -0,0 +1,84 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.common.util.Constants;
+
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.minecraft.HandleItemStack;
+
+/**
+ * Packs sequences of {@link ItemStack}s into a compound that contains each distinct stack only once.
+ * <p>
+ * The distinct stacks (without their count) are listed under {@link #PALETTE}, and {@link #STACKS} is an int array of
+ * <code>{ palette index + 1, count }</code> pairs, one per element. Empty stacks have a palette index of 0.
+ * <p>
+ * This is only used when the first handler for the element type is the built-in {@link HandleItemStack}. Sequences
+ * that contain <code>null</code> cannot be packed.
+ */
+@SuppressWarnings("rawtypes")
+public enum PackedItemStacks implements ElementPacking {
+
+    INSTANCE;
+
+    public static final @Nonnull String PALETTE = InventoryList.PALETTE;
+    public static final @Nonnull String STACKS = "Stacks";
+
+    /**
+     * Returns the packing for elements that are handled by the given handlers, or <code>null</code> if they cannot be
+     * packed.
+     */
+    public static @Nullable PackedItemStacks forHandlers(@Nullable List<IHandler> handlers) {
+        if (handlers == null || handlers.isEmpty() || handlers.get(0).getClass() != HandleItemStack.class) {
+            return null;
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public @Nullable NBTBase pack(Collection<?> collection) {
+        ItemStackPalette palette = new ItemStackPalette();
+        int[] stacks = new int[collection.size() * 2];
+        int i = 0;
+        for (Object elem : collection) {
+            if (elem == null) {
+                return null;
+            }
+            ItemStack stack = (ItemStack) elem;
+            if (!stack.isEmpty()) {
+                stacks[i] = palette.indexOf(ItemStackPalette.writeWithoutCount(stack)) + 1;
+                stacks[i + 1] = stack.getCount();
+            }
+            i += 2;
+        }
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag(PALETTE, palette.getEntries());
+        tag.setIntArray(STACKS, stacks);
+        return tag;
+    }
+
+    @Override
+    public int size(NBTBase tag) {
+        if (tag instanceof NBTTagCompound && ((NBTTagCompound) tag).hasKey(STACKS, Constants.NBT.TAG_INT_ARRAY)) {
+            return ((NBTTagCompound) tag).getIntArray(STACKS).length / 2;
+        }
+        return -1;
+    }
+
+    @Override
+    public void unpack(NBTBase tag, Collection<Object> collection) {
+        NBTTagCompound compound = (NBTTagCompound) tag;
+        ItemStack[] palette = ItemStackPalette.decode(compound.getTagList(PALETTE, Constants.NBT.TAG_COMPOUND));
+        int[] stacks = compound.getIntArray(STACKS);
+        for (int i = 0; i + 1 < stacks.length; i += 2) {
+            collection.add(ItemStackPalette.get(palette, stacks[i] - 1, stacks[i + 1]));
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraftforge.common.util.Constants;
+
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.handlers.java.HandlePrimitive;
+import info.loenwind.autosave.util.LongArrayUtil;
+
+/**
+ * Packs collections of boxed primitives into a single array tag.
+ * <p>
+ * This is only used when the first handler for the element type is one of the built-in {@link HandlePrimitive}
+ * handlers, so the elements are known to be of the matching boxed type. Collections that contain <code>null</code>
+ * cannot be packed.
+ */
+@SuppressWarnings("rawtypes")
+public enum PackedPrimitives implements ElementPacking {
+
+    BOOLEAN(Constants.NBT.TAG_BYTE_ARRAY) {
+        @Override
+        public @Nullable NBTBase pack(Collection<?> collection) {
+            byte[] data = new byte[collection.size()];
+            int i = 0;
+            for (Object elem : collection) {
+                if (elem == null) {
+                    return null;
+                }
+                data[i++] = (byte) ((Boolean) elem ? 1 : 0);
+            }
+            return new NBTTagByteArray(data);
+        }
+
+        @Override
+        public void unpack(NBTBase tag, Collection<Object> collection) {
+            for (byte b : ((NBTTagByteArray) tag).getByteArray()) {
+                collection.add(b != 0);
+            }
+        }
+    },
+    BYTE(Constants.NBT.TAG_BYTE_ARRAY) {
+        @Override
+        public @Nullable NBTBase pack(Collection<?> collection) {
+            byte[] data = new byte[collection.size()];
+            int i = 0;
+            for (Object elem : collection) {
+                if (elem == null) {
+                    return null;
+                }
+                data[i++] = (Byte) elem;
+            }
+            return new NBTTagByteArray(data);
+        }
+
+        @Override
+        public void unpack(NBTBase tag, Collection<Object> collection) {
+            for (byte b : ((NBTTagByteArray) tag).getByteArray()) {
+                collection.add(b);
+            }
+        }
+    },
+    SHORT(Constants.NBT.TAG_INT_ARRAY) {
+        @Override
+        public @Nullable NBTBase pack(Collection<?> collection) {
+            int[] data = new int[collection.size()];
+            int i = 0;
+            for (Object elem : collection) {
+                if (elem == null) {
+                    return null;
+                }
+                data[i++] = (Short) elem;
+            }
+            return new NBTTagIntArray(data);
+        }
+
+        @Override
+        public void unpack(NBTBase tag, Collection<Object> collection) {
+            for (int v : ((NBTTagIntArray) tag).getIntArray()) {
+                collection.add((short) v);
+            }
+        }
+    },
+    CHAR(Constants.NBT.TAG_INT_ARRAY) {
+        @Override
+        public @Nullable NBTBase pack(Collection<?> collection) {
+            int[] data = new int[collection.size()];
+            int i = 0;
+            for (Object elem : collection) {
+                if (elem == null) {
+                    return null;
+                }
+                data[i++] = (Character) elem;
+            }
+            return new NBTTagIntArray(data);
+        }
+
+        @Override
+        public void unpack(NBTBase tag, Collection<Object> collection) {
+            for (int v : ((NBTTagIntArray) tag).getIntArray()) {
+                collection.add((char) v);
+            }
+        }
+    },
+    INT(Constants.NBT.TAG_INT_ARRAY) {
+        @Override
+        public @Nullable NBTBase pack(Collection<?> collection) {
+            int[] data = new int[collection.size()];
+            int i = 0;
+            for (Object elem : collection) {
+                if (elem == null) {
+                    return null;
+                }
+                data[i++] = (Integer) elem;
+            }
+            return new NBTTagIntArray(data);
+        }
+
+        @Override
+        public void unpack(NBTBase tag, Collection<Object> collection) {
+            for (int v : ((NBTTagIntArray) tag).getIntArray()) {
+                collection.add(v);
+            }
+        }
+    },
+    FLOAT(Constants.NBT.TAG_INT_ARRAY) {
+        @Override
+        public @Nullable NBTBase pack(Collection<?> collection) {
+            int[] data = new int[collection.size()];
+            int i = 0;
+            for (Object elem : collection) {
+                if (elem == null) {
+                    return null;
+                }
+                data[i++] = Float.floatToRawIntBits((Float) elem);
+            }
+            return new NBTTagIntArray(data);
+        }
+
+        @Override
+        public void unpack(NBTBase tag, Collection<Object> collection) {
+            for (int v : ((NBTTagIntArray) tag).getIntArray()) {
+                collection.add(Float.intBitsToFloat(v));
+            }
+        }
+    },
+    LONG(Constants.NBT.TAG_LONG_ARRAY) {
+        @Override
+        public @Nullable NBTBase pack(Collection<?> collection) {
+            long[] data = new long[collection.size()];
+            int i = 0;
+            for (Object elem : collection) {
+                if (elem == null) {
+                    return null;
+                }
+                data[i++] = (Long) elem;
+            }
+            return LongArrayUtil.create(data);
+        }
+
+        @Override
+        public void unpack(NBTBase tag, Collection<Object> collection) {
+            long[] data = LongArrayUtil.get(tag);
+            if (data != null) {
+                for (long v : data) {
+                    collection.add(v);
+                }
+            }
+        }
+
+        @Override
+        public int size(NBTBase tag) {
+            return LongArrayUtil.size(tag);
+        }
+    },
+    DOUBLE(Constants.NBT.TAG_LONG_ARRAY) {
+        @Override
+        public @Nullable NBTBase pack(Collection<?> collection) {
+            long[] data = new long[collection.size()];
+            int i = 0;
+            for (Object elem : collection) {
+                if (elem == null) {
+                    return null;
+                }
+                data[i++] = Double.doubleToRawLongBits((Double) elem);
+            }
+            return LongArrayUtil.create(data);
+        }
+
+        @Override
+        public void unpack(NBTBase tag, Collection<Object> collection) {
+            long[] data = LongArrayUtil.get(tag);
+            if (data != null) {
+                for (long v : data) {
+                    collection.add(Double.longBitsToDouble(v));
+                }
+            }
+        }
+
+        @Override
+        public int size(NBTBase tag) {
+            return LongArrayUtil.size(tag);
+        }
+    };
+
+    private final int tagType;
+
+    private PackedPrimitives(int tagType) {
+        this.tagType = tagType;
+    }
+
+    /**
+     * Returns the packing for elements that are handled by the given handlers, or <code>null</code> if they cannot be
+     * packed.
+     */
+    public static @Nullable PackedPrimitives forHandlers(@Nullable List<IHandler> handlers) {
+        if (handlers == null || handlers.isEmpty()) {
+            return null;
+        }
+        IHandler first = handlers.get(0);
+        if (first == HandlePrimitive.BOOLEAN) {
+            return BOOLEAN;
+        } else if (first == HandlePrimitive.BYTE) {
+            return BYTE;
+        } else if (first == HandlePrimitive.SHORT) {
+            return SHORT;
+        } else if (first == HandlePrimitive.CHAR) {
+            return CHAR;
+        } else if (first == HandlePrimitive.INT) {
+            return INT;
+        } else if (first == HandlePrimitive.FLOAT) {
+            return FLOAT;
+        } else if (first == HandlePrimitive.LONG) {
+            return LONG;
+        } else if (first == HandlePrimitive.DOUBLE) {
+            return DOUBLE;
+        }
+        return null;
+    }
+
+    @Override
+    public int size(NBTBase tag) {
+        if (tag.getId() != tagType) {
+            return -1;
+        }
+        return tagType == Constants.NBT.TAG_BYTE_ARRAY ? ((NBTTagByteArray) tag).getByteArray().length :
+                ((NBTTagIntArray) tag).getIntArray().length;
+    }
+}
@@ -0,0 +1,304 @@
+package info.loenwind.autosave.handlers.util;
+
+import java.lang.reflect.Array;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.common.util.Constants;
+
+import info.loenwind.autosave.util.LongArrayUtil;
+
+/**
+ * Converters between primitive (and boxed primitive) arrays and NBT array tags. They are used as the writer and reader
+ * functions of the array handlers in the {@link info.loenwind.autosave.Registry#GLOBAL_REGISTRY}.
+ * <p>
+ * Formats:
+ * <ul>
+ * <li><code>short</code> and <code>char</code>: byte array, two bytes per element (big-endian). Formerly an int array
+ * with one int per element, which is still read.
+ * <li><code>float</code>: int array of the float bits.
+ * <li><code>long</code> and <code>double</code>: long array (of the double bits). Formerly an int array with two ints
+ * per element, which is still read.
+ * </ul>
+ * Boxed arrays use the same format as their primitive counterparts and are converted without an intermediate primitive
+ * array where possible. They must not contain <code>null</code>.
+ */
+public final class PrimitiveArrays {
+
+    private PrimitiveArrays() {}
+
+    /**
+     * Checks if the array the field currently holds can be reused. The readers fill existing arrays of the right length
+     * instead of allocating new ones.
+     */
+    private static boolean reuse(@Nullable Object into, int length) {
+        return into != null && Array.getLength(into) == length;
+    }
+
+    // byte
+
+    public static void writeBoxedBytes(NBTTagCompound nbt, String name, Byte[] array) {
+        byte[] data = new byte[array.length];
+        for (int i = 0; i < array.length; i++) {
+            data[i] = array[i];
+        }
+        nbt.setByteArray(name, data);
+    }
+
+    public static Byte[] readBoxedBytes(NBTTagCompound nbt, String name, @Nullable Byte[] into) {
+        byte[] data = nbt.getByteArray(name);
+        Byte[] result = reuse(into, data.length) ? into : new Byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = data[i];
+        }
+        return result;
+    }
+
+    // int
+
+    public static void writeBoxedInts(NBTTagCompound nbt, String name, Integer[] array) {
+        int[] data = new int[array.length];
+        for (int i = 0; i < array.length; i++) {
+            data[i] = array[i];
+        }
+        nbt.setIntArray(name, data);
+    }
+
+    public static Integer[] readBoxedInts(NBTTagCompound nbt, String name, @Nullable Integer[] into) {
+        int[] data = nbt.getIntArray(name);
+        Integer[] result = reuse(into, data.length) ? into : new Integer[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = data[i];
+        }
+        return result;
+    }
+
+    // short and char
+
+    private static byte[] newShortData(int length) {
+        return new byte[length * 2];
+    }
+
+    private static void setShort(byte[] data, int index, int value) {
+        data[index * 2] = (byte) (value >>> 8);
+        data[index * 2 + 1] = (byte) value;
+    }
+
+    private static int getShort(byte[] data, int index) {
+        return (data[index * 2] << 8) | (data[index * 2 + 1] & 0xFF);
+    }
+
+    /**
+     * Returns the 16-bit values as bytes, or <code>null</code> if they are stored in the legacy int array format.
+     */
+    private static @Nullable byte[] getShortData(NBTTagCompound nbt, String name) {
+        return nbt.hasKey(name, Constants.NBT.TAG_BYTE_ARRAY) ? nbt.getByteArray(name) : null;
+    }
+
+    public static void writeShorts(NBTTagCompound nbt, String name, short[] array) {
+        byte[] data = newShortData(array.length);
+        for (int i = 0; i < array.length; i++) {
+            setShort(data, i, array[i]);
+        }
+        nbt.setByteArray(name, data);
+    }
+
+    public static short[] readShorts(NBTTagCompound nbt, String name, @Nullable short[] into) {
+        byte[] data = getShortData(nbt, name);
+        if (data != null) {
+            short[] result = reuse(into, data.length / 2) ? into : new short[data.length / 2];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (short) getShort(data, i);
+            }
+            return result;
+        }
+        int[] legacy = nbt.getIntArray(name);
+        short[] result = reuse(into, legacy.length) ? into : new short[legacy.length];
+        for (int i = 0; i < legacy.length; i++) {
+            result[i] = (short) legacy[i];
+        }
+        return result;
+    }
+
+    public static void writeBoxedShorts(NBTTagCompound nbt, String name, Short[] array) {
+        byte[] data = newShortData(array.length);
+        for (int i = 0; i < array.length; i++) {
+            setShort(data, i, array[i]);
+        }
+        nbt.setByteArray(name, data);
+    }
+
+    public static Short[] readBoxedShorts(NBTTagCompound nbt, String name, @Nullable Short[] into) {
+        byte[] data = getShortData(nbt, name);
+        if (data != null) {
+            Short[] result = reuse(into, data.length / 2) ? into : new Short[data.length / 2];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (short) getShort(data, i);
+            }
+            return result;
+        }
+        int[] legacy = nbt.getIntArray(name);
+        Short[] result = reuse(into, legacy.length) ? into : new Short[legacy.length];
+        for (int i = 0; i < legacy.length; i++) {
+            result[i] = (short) legacy[i];
+        }
+        return result;
+    }
+
+    public static void writeChars(NBTTagCompound nbt, String name, char[] array) {
+        byte[] data = newShortData(array.length);
+        for (int i = 0; i < array.length; i++) {
+            setShort(data, i, array[i]);
+        }
+        nbt.setByteArray(name, data);
+    }
+
+    public static char[] readChars(NBTTagCompound nbt, String name, @Nullable char[] into) {
+        byte[] data = getShortData(nbt, name);
+        if (data != null) {
+            char[] result = reuse(into, data.length / 2) ? into : new char[data.length / 2];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (char) getShort(data, i);
+            }
+            return result;
+        }
+        int[] legacy = nbt.getIntArray(name);
+        char[] result = reuse(into, legacy.length) ? into : new char[legacy.length];
+        for (int i = 0; i < legacy.length; i++) {
+            result[i] = (char) legacy[i];
+        }
+        return result;
+    }
+
+    public static void writeBoxedChars(NBTTagCompound nbt, String name, Character[] array) {
+        byte[] data = newShortData(array.length);
+        for (int i = 0; i < array.length; i++) {
+            setShort(data, i, array[i]);
+        }
+        nbt.setByteArray(name, data);
+    }
+
+    public static Character[] readBoxedChars(NBTTagCompound nbt, String name, @Nullable Character[] into) {
+        byte[] data = getShortData(nbt, name);
+        if (data != null) {
+            Character[] result = reuse(into, data.length / 2) ? into : new Character[data.length / 2];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (char) getShort(data, i);
+            }
+            return result;
+        }
+        int[] legacy = nbt.getIntArray(name);
+        Character[] result = reuse(into, legacy.length) ? into : new Character[legacy.length];
+        for (int i = 0; i < legacy.length; i++) {
+            result[i] = (char) legacy[i];
+        }
+        return result;
+    }
+
+    // float
+
+    public static void writeFloats(NBTTagCompound nbt, String name, float[] array) {
+        int[] data = new int[array.length];
+        for (int i = 0; i < array.length; i++) {
+            data[i] = Float.floatToIntBits(array[i]);
+        }
+        nbt.setIntArray(name, data);
+    }
+
+    public static float[] readFloats(NBTTagCompound nbt, String name, @Nullable float[] into) {
+        int[] data = nbt.getIntArray(name);
+        float[] result = reuse(into, data.length) ? into : new float[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = Float.intBitsToFloat(data[i]);
+        }
+        return result;
+    }
+
+    public static void writeBoxedFloats(NBTTagCompound nbt, String name, Float[] array) {
+        int[] data = new int[array.length];
+        for (int i = 0; i < array.length; i++) {
+            data[i] = Float.floatToIntBits(array[i]);
+        }
+        nbt.setIntArray(name, data);
+    }
+
+    public static Float[] readBoxedFloats(NBTTagCompound nbt, String name, @Nullable Float[] into) {
+        int[] data = nbt.getIntArray(name);
+        Float[] result = reuse(into, data.length) ? into : new Float[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = Float.intBitsToFloat(data[i]);
+        }
+        return result;
+    }
+
+    // long and double
+
+    private static long[] getLongData(NBTTagCompound nbt, String name) {
+        long[] data = LongArrayUtil.get(nbt, name);
+        return data != null ? data : new long[0];
+    }
+
+    public static void writeLongs(NBTTagCompound nbt, String name, long[] array) {
+        // Copied, as the tag does not copy its data
+        LongArrayUtil.set(nbt, name, array.clone());
+    }
+
+    public static long[] readLongs(NBTTagCompound nbt, String name, @Nullable long[] into) {
+        long[] data = getLongData(nbt, name);
+        long[] result = reuse(into, data.length) ? into : new long[data.length];
+        System.arraycopy(data, 0, result, 0, data.length);
+        return result;
+    }
+
+    public static void writeBoxedLongs(NBTTagCompound nbt, String name, Long[] array) {
+        long[] data = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            data[i] = array[i];
+        }
+        LongArrayUtil.set(nbt, name, data);
+    }
+
+    public static Long[] readBoxedLongs(NBTTagCompound nbt, String name, @Nullable Long[] into) {
+        long[] data = getLongData(nbt, name);
+        Long[] result = reuse(into, data.length) ? into : new Long[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = data[i];
+        }
+        return result;
+    }
+
+    public static void writeDoubles(NBTTagCompound nbt, String name, double[] array) {
+        long[] data = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            data[i] = Double.doubleToLongBits(array[i]);
+        }
+        LongArrayUtil.set(nbt, name, data);
+    }
+
+    public static double[] readDoubles(NBTTagCompound nbt, String name, @Nullable double[] into) {
+        long[] data = getLongData(nbt, name);
+        double[] result = reuse(into, data.length) ? into : new double[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = Double.longBitsToDouble(data[i]);
+        }
+        return result;
+    }
+
+    public static void writeBoxedDoubles(NBTTagCompound nbt, String name, Double[] array) {
+        long[] data = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            data[i] = Double.doubleToLongBits(array[i]);
+        }
+        LongArrayUtil.set(nbt, name, data);
+    }
+
+    public static Double[] readBoxedDoubles(NBTTagCompound nbt, String name, @Nullable Double[] into) {
+        long[] data = getLongData(nbt, name);
+        Double[] result = reuse(into, data.length) ? into : new Double[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = Double.longBitsToDouble(data[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,87 @@
+package info.loenwind.autosave.util;
+
+import javax.annotation.Nullable;
+
+import info.loenwind.autosave.annotations.Storable;
+import info.loenwind.autosave.annotations.Store;
+import info.loenwind.autosave.handlers.IHandler;
+
+/**
+ * Per-class caches for the reflective lookups that are needed to resolve handlers.
+ * <p>
+ * The caches use {@link ClassValue}s, so they don't keep classes from being unloaded.
+ */
+public final class AnnotationUtil {
+
+    private AnnotationUtil() {}
+
+    private static final class StorableHolder {
+
+        final @Nullable Storable annotation;
+
+        StorableHolder(@Nullable Storable annotation) {
+            this.annotation = annotation;
+        }
+    }
+
+    private static final ClassValue<StorableHolder> STORABLE = new ClassValue<StorableHolder>() {
+
+        @Override
+        protected StorableHolder computeValue(@Nullable Class<?> type) {
+            return new StorableHolder(
+                    NullHelper.notnullJ(type, "ClassValue#computeValue").getAnnotation(Storable.class));
+        }
+    };
+
+    private static final class HandlerHolder {
+
+        final @Nullable IHandler<?> handler;
+
+        HandlerHolder(@Nullable IHandler<?> handler) {
+            this.handler = handler;
+        }
+    }
+
+    private static final ClassValue<HandlerHolder> HANDLERS = new ClassValue<HandlerHolder>() {
+
+        @Override
+        protected HandlerHolder computeValue(@Nullable Class<?> type) {
+            try {
+                return new HandlerHolder((IHandler<?>) NullHelper.notnullJ(type, "ClassValue#computeValue")
+                        .newInstance());
+            } catch (InstantiationException | IllegalAccessException e) {
+                // Not cached, getHandlerInstance() will try again to throw the exception to the caller
+                return new HandlerHolder(null);
+            }
+        }
+    };
+
+    /**
+     * Cached version of <code>clazz.getAnnotation(Storable.class)</code>.
+     */
+    public static @Nullable Storable getStorable(Class<?> clazz) {
+        return NullHelper.notnullJ(STORABLE.get(clazz), "ClassValue#get").annotation;
+    }
+
+    /**
+     * Returns the shared instance of a handler class that is named in a {@link Storable} or {@link Store} annotation.
+     * The instance is created on first use.
+     * <p>
+     * Note: Such handlers must not keep per-use state, as the same instance is used everywhere.
+     *
+     * @throws InstantiationException
+     *                                If the handler could not be created, see {@link Class#newInstance()}
+     * @throws IllegalAccessException
+     *                                If the handler could not be created, see {@link Class#newInstance()}
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static <T extends IHandler> T getHandlerInstance(Class<T> handlerClass) throws InstantiationException,
+                                                                                   IllegalAccessException {
+        IHandler<?> handler = NullHelper.notnullJ(HANDLERS.get(handlerClass), "ClassValue#get").handler;
+        if (handler == null) {
+            HANDLERS.remove(handlerClass);
+            return NullHelper.notnullJ(handlerClass.newInstance(), "Class#newInstance");
+        }
+        return (T) handler;
+    }
+}
@@ -0,0 +1,204 @@
+package info.loenwind.autosave.util;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * Turns constructors and methods into functional interface instances that can be inlined by the JIT.
+ * <p>
+ * Where possible, the instances are spun by the {@link LambdaMetafactory}, just like a method reference in source
+ * code. This needs a lookup with private access to the declaring class, which is not always available. In that case,
+ * the instance calls an exactly typed {@link MethodHandle} instead, which is still much faster than reflection.
+ * <p>
+ * The returned instances may throw the checked exceptions of the target undeclared. Callers that care should catch
+ * {@link Exception}.
+ */
+public final class LambdaUtil {
+
+    private LambdaUtil() {}
+
+    private static final MethodType SUPPLIER_TYPE = MethodType.methodType(Supplier.class);
+    private static final MethodType CONSUMER_TYPE = MethodType.methodType(Consumer.class);
+    private static final MethodType RUNNABLE_TYPE = MethodType.methodType(Runnable.class);
+    private static final MethodType GET_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType ACCEPT_TYPE = MethodType.methodType(void.class, Object.class);
+    private static final MethodType RUN_TYPE = MethodType.methodType(void.class);
+
+    private static final @Nullable Method PRIVATE_LOOKUP_IN = findPrivateLookupIn();
+    private static final @Nullable Constructor<MethodHandles.Lookup> LOOKUP_CONSTRUCTOR = findLookupConstructor();
+
+    private static @Nullable Method findPrivateLookupIn() {
+        try {
+            // Java 9+
+            return MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable Constructor<MethodHandles.Lookup> findLookupConstructor() {
+        if (PRIVATE_LOOKUP_IN != null) {
+            return null;
+        }
+        try {
+            // Java 8
+            Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class
+                    .getDeclaredConstructor(Class.class);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return A lookup with private access to the given class, or <code>null</code> if none can be had
+     */
+    private static @Nullable MethodHandles.Lookup privateLookup(Class<?> clazz) {
+        try {
+            final Method privateLookupIn = PRIVATE_LOOKUP_IN;
+            if (privateLookupIn != null) {
+                return (MethodHandles.Lookup) privateLookupIn.invoke(null, clazz, MethodHandles.lookup());
+            }
+            final Constructor<MethodHandles.Lookup> lookupConstructor = LOOKUP_CONSTRUCTOR;
+            if (lookupConstructor != null) {
+                return lookupConstructor.newInstance(clazz);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Log.debug("No private lookup for ", clazz, ": ", e);
+        }
+        return null;
+    }
+
+    /**
+     * Creates a {@link Supplier} that calls the given no-args constructor.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Supplier<T> supplier(Constructor<T> constructor) throws IllegalAccessException {
+        constructor.setAccessible(true);
+        MethodHandle handle = NullHelper.notnullJ(MethodHandles.lookup().unreflectConstructor(constructor),
+                "Lookup#unreflectConstructor");
+        Class<?> owner = constructor.getDeclaringClass();
+        Supplier<T> result = (Supplier<T>) metafactory(owner, "get", SUPPLIER_TYPE, GET_TYPE,
+                lookup -> lookup.findConstructor(owner, MethodType.methodType(void.class)),
+                MethodType.methodType(owner));
+        return result != null ? result : (Supplier<T>) handleSupplier(handle);
+    }
+
+    /**
+     * Creates a {@link Supplier} that calls the given static no-args method.
+     */
+    public static Supplier<?> supplier(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        if (!Modifier.isStatic(method.getModifiers())) {
+            // Fails the same way it always did
+            return () -> {
+                try {
+                    return method.invoke(null);
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        }
+        MethodHandle handle = NullHelper.notnullJ(MethodHandles.lookup().unreflect(method), "Lookup#unreflect");
+        Class<?> owner = method.getDeclaringClass();
+        Supplier<?> result = (Supplier<?>) metafactory(owner, "get", SUPPLIER_TYPE, GET_TYPE,
+                lookup -> lookup.unreflect(method), MethodType.methodType(method.getReturnType()));
+        return result != null ? result : handleSupplier(handle);
+    }
+
+    /**
+     * Creates a {@link Consumer} that calls the given no-args method on the object it is given. Static methods are
+     * supported, too; they ignore the object.
+     */
+    @SuppressWarnings("unchecked")
+    public static Consumer<Object> consumer(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        MethodHandle handle = NullHelper.notnullJ(MethodHandles.lookup().unreflect(method), "Lookup#unreflect");
+        Class<?> owner = method.getDeclaringClass();
+        if (Modifier.isStatic(method.getModifiers())) {
+            Runnable runnable = (Runnable) metafactory(owner, "run", RUNNABLE_TYPE, RUN_TYPE,
+                    lookup -> lookup.unreflect(method), RUN_TYPE);
+            if (runnable != null) {
+                return object -> runnable.run();
+            }
+            MethodHandle exact = NullHelper.notnullJ(handle.asType(RUN_TYPE), "MethodHandle#asType");
+            return object -> {
+                try {
+                    exact.invokeExact();
+                } catch (Throwable e) {
+                    throw rethrow(e);
+                }
+            };
+        }
+        Consumer<Object> result = (Consumer<Object>) metafactory(owner, "accept", CONSUMER_TYPE, ACCEPT_TYPE,
+                lookup -> lookup.unreflect(method), MethodType.methodType(void.class, owner));
+        if (result != null) {
+            return result;
+        }
+        MethodHandle exact = NullHelper.notnullJ(handle.asType(ACCEPT_TYPE), "MethodHandle#asType");
+        return object -> {
+            try {
+                exact.invokeExact(object);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface ImplementationFinder {
+
+        MethodHandle find(MethodHandles.Lookup lookup) throws ReflectiveOperationException;
+    }
+
+    private static @Nullable Object metafactory(Class<?> owner, String name, MethodType factoryType,
+                                                MethodType samType, ImplementationFinder implementation,
+                                                MethodType instantiatedType) {
+        MethodHandles.Lookup lookup = privateLookup(owner);
+        if (lookup == null) {
+            return null;
+        }
+        try {
+            CallSite site = LambdaMetafactory.metafactory(lookup, name, factoryType, samType,
+                    implementation.find(lookup), instantiatedType);
+            return site.getTarget().invoke();
+        } catch (Throwable e) {
+            Log.debug("Cannot create lambda for ", owner, ": ", e);
+            return null;
+        }
+    }
+
+    private static Supplier<?> handleSupplier(MethodHandle handle) {
+        MethodHandle exact = NullHelper.notnullJ(handle.asType(GET_TYPE), "MethodHandle#asType");
+        return () -> {
+            try {
+                return (Object) exact.invokeExact();
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    /**
+     * Throws the given {@link Throwable} unchanged, even if it is a checked exception.
+     */
+    private static RuntimeException rethrow(Throwable e) {
+        return LambdaUtil.<RuntimeException> sneakyThrow(e);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> E sneakyThrow(Throwable e) throws E {
+        throw (E) e;
+    }
+}
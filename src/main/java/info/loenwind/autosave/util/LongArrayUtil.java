@@ -0,0 +1,109 @@
+package info.loenwind.autosave.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagLongArray;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * Access to {@link NBTTagLongArray}s, which have no public getter in this Minecraft version.
+ * <p>
+ * The data is read through the one <code>long[]</code> field of the tag class. Should that field not be accessible,
+ * long arrays are written as {@link NBTTagIntArray}s with two ints per long instead. Both forms are read.
+ */
+public final class LongArrayUtil {
+
+    private LongArrayUtil() {}
+
+    private static final @Nullable Field DATA = findDataField();
+
+    private static @Nullable Field findDataField() {
+        try {
+            // Looked up by type, so it works with any mappings
+            for (Field field : NBTTagLongArray.class.getDeclaredFields()) {
+                if (field.getType() == long[].class && !Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.warn("Cannot access NBTTagLongArray, long arrays will be stored as int arrays: ", e);
+        }
+        return null;
+    }
+
+    /**
+     * Creates a tag holding the given longs. The array is not copied.
+     */
+    public static NBTBase create(long[] data) {
+        if (DATA != null) {
+            return new NBTTagLongArray(data);
+        }
+        int[] ints = new int[data.length * 2];
+        for (int i = 0; i < data.length; i++) {
+            ints[i * 2] = BitUtil.getLongMSB(data[i]);
+            ints[i * 2 + 1] = BitUtil.getLongLSB(data[i]);
+        }
+        return new NBTTagIntArray(ints);
+    }
+
+    /**
+     * Returns the longs of a tag created by {@link #create(long[])}, or <code>null</code> if the tag is of another type.
+     * The array is not copied.
+     */
+    public static @Nullable long[] get(@Nullable NBTBase tag) {
+        if (tag == null) {
+            return null;
+        }
+        switch (tag.getId()) {
+        case Constants.NBT.TAG_LONG_ARRAY:
+            final Field data = DATA;
+            if (data != null) {
+                try {
+                    return (long[]) data.get(tag);
+                } catch (IllegalAccessException e) {
+                    Log.warn("Cannot read NBTTagLongArray: ", e);
+                }
+            }
+            return null;
+        case Constants.NBT.TAG_INT_ARRAY:
+            int[] ints = ((NBTTagIntArray) tag).getIntArray();
+            if (ints.length % 2 != 0) {
+                return null;
+            }
+            long[] result = new long[ints.length / 2];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = BitUtil.longFromInts(ints[i * 2], ints[i * 2 + 1]);
+            }
+            return result;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of longs in a tag created by {@link #create(long[])}, or -1 if the tag is of another type.
+     */
+    public static int size(@Nullable NBTBase tag) {
+        if (tag != null && tag.getId() == Constants.NBT.TAG_INT_ARRAY) {
+            int length = ((NBTTagIntArray) tag).getIntArray().length;
+            return length % 2 == 0 ? length / 2 : -1;
+        }
+        long[] data = get(tag);
+        return data != null ? data.length : -1;
+    }
+
+    public static void set(NBTTagCompound nbt, String name, long[] data) {
+        nbt.setTag(name, create(data));
+    }
+
+    public static @Nullable long[] get(NBTTagCompound nbt, String name) {
+        return get(nbt.getTag(name));
+    }
+}
@@ -0,0 +1,321 @@
+package info.loenwind.autosave.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+/**
+ * A map from primitive longs to objects, using open addressing with linear probing (see {@link LongSet}).
+ * <p>
+ * Keys are not boxed, which saves the <code>Long</code> and the entry object a <code>HashMap&lt;Long, V&gt;</code>
+ * needs per entry. {@link net.minecraft.util.math.BlockPos}es can be used as keys by their
+ * {@link net.minecraft.util.math.BlockPos#toLong()}.
+ * <p>
+ * Fields of this type are stored as a long array of the keys and a list of the values by the
+ * {@link info.loenwind.autosave.Registry#GLOBAL_REGISTRY}. Values may be <code>null</code>.
+ *
+ * @param <V>
+ *            The type of the values
+ */
+public final class LongMap<V> {
+
+    /**
+     * Receives the entries of a map, see {@link LongMap#forEach(EntryConsumer)}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(long key, @Nullable V value);
+    }
+
+    private long[] keys;
+    private Object[] values;
+    /**
+     * 0 marks an empty slot in {@link #keys}, so the key 0 itself is tracked separately.
+     */
+    private boolean hasZero = false;
+    private @Nullable V zeroValue = null;
+    private int size = 0;
+    private int mask;
+    private int maxFill;
+
+    public LongMap() {
+        this(16);
+    }
+
+    public LongMap(int expectedSize) {
+        int capacity = LongSet.tableSize(expectedSize);
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.maxFill = LongSet.maxFill(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot of the key, or -1 if it is not in the map. The key must not be 0.
+     */
+    private int find(long key) {
+        for (int pos = LongSet.hash(key) & mask;; pos = (pos + 1) & mask) {
+            long current = keys[pos];
+            if (current == 0) {
+                return -1;
+            } else if (current == key) {
+                return pos;
+            }
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZero : find(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int pos = find(key);
+        return pos >= 0 ? (V) values[pos] : null;
+    }
+
+    public @Nullable V getOrDefault(long key, @Nullable V defaultValue) {
+        return containsKey(key) ? get(key) : defaultValue;
+    }
+
+    /**
+     * @return The previous value of the key, or <code>null</code> if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V put(long key, @Nullable V value) {
+        if (key == 0) {
+            V previous = zeroValue;
+            zeroValue = value;
+            if (!hasZero) {
+                hasZero = true;
+                grow();
+            }
+            return previous;
+        }
+        int pos = LongSet.hash(key) & mask;
+        for (long current = keys[pos]; current != 0; current = keys[pos]) {
+            if (current == key) {
+                V previous = (V) values[pos];
+                values[pos] = value;
+                return previous;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = key;
+        values[pos] = value;
+        grow();
+        return null;
+    }
+
+    private void grow() {
+        if (++size >= maxFill) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * @return The removed value, or <code>null</code> if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(long key) {
+        if (key == 0) {
+            V previous = zeroValue;
+            if (hasZero) {
+                hasZero = false;
+                zeroValue = null;
+                size--;
+            }
+            return previous;
+        }
+        int pos = find(key);
+        if (pos < 0) {
+            return null;
+        }
+        V previous = (V) values[pos];
+        shiftKeys(pos);
+        size--;
+        return previous;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0);
+            Arrays.fill(values, null);
+            hasZero = false;
+            zeroValue = null;
+            size = 0;
+        }
+    }
+
+    /**
+     * Makes sure the map can hold the given number of entries without growing.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = LongSet.tableSize(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Closes the gap at the given slot by moving back the following entries of its probe sequence.
+     */
+    private void shiftKeys(int pos) {
+        for (;;) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            for (;;) {
+                current = keys[pos];
+                if (current == 0) {
+                    keys[last] = 0;
+                    values[last] = null;
+                    return;
+                }
+                int slot = LongSet.hash(current) & mask;
+                // Can the entry at pos move to last without leaving its probe sequence?
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] newKeys = new long[capacity];
+        Object[] newValues = new Object[capacity];
+        int newMask = capacity - 1;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != 0) {
+                int pos = LongSet.hash(key) & newMask;
+                while (newKeys[pos] != 0) {
+                    pos = (pos + 1) & newMask;
+                }
+                newKeys[pos] = key;
+                newValues[pos] = values[i];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+        mask = newMask;
+        maxFill = LongSet.maxFill(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        if (hasZero) {
+            action.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the keys as a new array.
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int i = 0;
+        if (hasZero) {
+            result[i++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values as a new array, in the same order as {@link #keys()}.
+     */
+    public Object[] values() {
+        Object[] result = new Object[size];
+        int i = 0;
+        if (hasZero) {
+            result[i++] = zeroValue;
+        }
+        for (int j = 0; j < keys.length; j++) {
+            if (keys[j] != 0) {
+                result[i++] = values[j];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the keys as a new {@link LongSet}.
+     */
+    public LongSet keySet() {
+        LongSet result = new LongSet(size);
+        forEach((key, value) -> result.add(key));
+        return result;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LongMap) || ((LongMap<?>) obj).size != size) {
+            return false;
+        }
+        LongMap<?> other = (LongMap<?>) obj;
+        if (hasZero && (!other.hasZero || !Objects.equals(zeroValue, other.zeroValue))) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                int pos = other.find(keys[i]);
+                if (pos < 0 || !Objects.equals(values[i], other.values[pos])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hasZero ? Objects.hashCode(zeroValue) : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                result += Long.hashCode(keys[i]) ^ Objects.hashCode(values[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(key).append('=').append(value);
+        });
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,364 @@
+package info.loenwind.autosave.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * A set of primitive longs, using open addressing with linear probing. It needs about 10 bytes per element, compared
+ * to about 50 bytes for a <code>HashSet&lt;Long&gt;</code> and even more for a <code>HashSet&lt;BlockPos&gt;</code>.
+ * <p>
+ * {@link BlockPos}es can be stored as their {@link BlockPos#toLong()}, see {@link #asBlockPosSet()}.
+ * <p>
+ * Fields of this type are stored as a single long array by the {@link info.loenwind.autosave.Registry#GLOBAL_REGISTRY}.
+ * <p>
+ * Note: Iterators do not support removal.
+ */
+public final class LongSet {
+
+    static final float LOAD_FACTOR = .75f;
+
+    private long[] keys;
+    /**
+     * 0 marks an empty slot in {@link #keys}, so the value 0 itself is tracked separately.
+     */
+    private boolean hasZero = false;
+    private int size = 0;
+    private int mask;
+    private int maxFill;
+
+    public LongSet() {
+        this(16);
+    }
+
+    public LongSet(int expectedSize) {
+        int capacity = tableSize(expectedSize);
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+        this.maxFill = maxFill(capacity);
+    }
+
+    /**
+     * Creates a set containing the {@link BlockPos#toLong()} of the given positions.
+     */
+    public static LongSet ofBlockPos(Collection<? extends BlockPos> positions) {
+        LongSet result = new LongSet(positions.size());
+        for (BlockPos pos : positions) {
+            result.add(pos.toLong());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the power of two table size that can hold the expected number of elements.
+     */
+    static int tableSize(int expectedSize) {
+        int needed = Math.max(2, (int) Math.ceil(expectedSize / LOAD_FACTOR));
+        return needed >= 1 << 30 ? 1 << 30 : Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    static int maxFill(int capacity) {
+        return Math.min(capacity - 1, (int) Math.ceil(capacity * LOAD_FACTOR));
+    }
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        for (int pos = hash(key) & mask;; pos = (pos + 1) & mask) {
+            long current = keys[pos];
+            if (current == 0) {
+                return false;
+            } else if (current == key) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the set did not already contain the key
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+        } else {
+            int pos = hash(key) & mask;
+            for (long current = keys[pos]; current != 0; current = keys[pos]) {
+                if (current == key) {
+                    return false;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[pos] = key;
+        }
+        if (++size >= maxFill) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if the set contained the key
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        for (int pos = hash(key) & mask;; pos = (pos + 1) & mask) {
+            long current = keys[pos];
+            if (current == 0) {
+                return false;
+            } else if (current == key) {
+                shiftKeys(pos);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, 0);
+            hasZero = false;
+            size = 0;
+        }
+    }
+
+    /**
+     * Makes sure the set can hold the given number of elements without growing.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSize(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Closes the gap at the given slot by moving back the following keys of its probe sequence.
+     */
+    private void shiftKeys(int pos) {
+        for (;;) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            for (;;) {
+                current = keys[pos];
+                if (current == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                int slot = hash(current) & mask;
+                // Can the key at pos move to last without leaving its probe sequence?
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] newKeys = new long[capacity];
+        int newMask = capacity - 1;
+        for (long key : oldKeys) {
+            if (key != 0) {
+                int pos = hash(key) & newMask;
+                while (newKeys[pos] != 0) {
+                    pos = (pos + 1) & newMask;
+                }
+                newKeys[pos] = key;
+            }
+        }
+        keys = newKeys;
+        mask = newMask;
+        maxFill = maxFill(capacity);
+    }
+
+    public void forEach(LongConsumer action) {
+        if (hasZero) {
+            action.accept(0);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+
+            private boolean zero = hasZero;
+            private int pos = nextSlot(0);
+
+            private int nextSlot(int from) {
+                while (from < keys.length && keys[from] == 0) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return zero || pos < keys.length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (zero) {
+                    zero = false;
+                    return 0;
+                }
+                if (pos >= keys.length) {
+                    throw new NoSuchElementException();
+                }
+                long key = keys[pos];
+                pos = nextSlot(pos + 1);
+                return key;
+            }
+        };
+    }
+
+    /**
+     * Returns the elements as a new array.
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        int i = 0;
+        if (hasZero) {
+            result[i++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a view of this set as a set of {@link BlockPos}es. Changes to either are visible in the other one.
+     * <p>
+     * The view creates a new {@link BlockPos} for every element it returns.
+     */
+    public Set<BlockPos> asBlockPosSet() {
+        return new AbstractSet<BlockPos>() {
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(@Nullable Object o) {
+                return o instanceof BlockPos && LongSet.this.contains(((BlockPos) o).toLong());
+            }
+
+            @Override
+            public boolean add(BlockPos pos) {
+                return LongSet.this.add(pos.toLong());
+            }
+
+            @Override
+            public boolean remove(@Nullable Object o) {
+                return o instanceof BlockPos && LongSet.this.remove(((BlockPos) o).toLong());
+            }
+
+            @Override
+            public void clear() {
+                LongSet.this.clear();
+            }
+
+            @Override
+            public Iterator<BlockPos> iterator() {
+                PrimitiveIterator.OfLong it = LongSet.this.iterator();
+                return new Iterator<BlockPos>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public BlockPos next() {
+                        return NullHelper.notnullM(BlockPos.fromLong(it.nextLong()), "BlockPos.fromLong");
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LongSet) || ((LongSet) obj).size != size) {
+            return false;
+        }
+        LongSet other = (LongSet) obj;
+        if (hasZero != other.hasZero) {
+            return false;
+        }
+        for (long key : keys) {
+            if (key != 0 && !other.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (long key : keys) {
+            result += Long.hashCode(key);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        forEach(key -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(key);
+        });
+        return sb.append(']').toString();
+    }
+}
@@ -1,5 +1,13 @@
 package info.loenwind.autosave.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
 public enum NBTAction {
     /**
      * The TE is saved to/loaded from the save file.
@@ -12,5 +20,65 @@ public enum NBTAction {
     /**
      * TE data is written to/read from an item.
      */
-    ITEM
+    ITEM;
+
+    /**
+     * The number of distinct phase combinations, i.e. the upper bound of {@link #toMask(Set)}.
+     */
+    public static final int COMBINATIONS = 1 << values().length;
+
+    private static final @Nonnull Set<NBTAction> ALL = NullHelper
+            .notnullJ(Collections.unmodifiableSet(EnumSet.allOf(NBTAction.class)), "Collections#unmodifiableSet");
+
+    private static final @Nonnull List<Set<NBTAction>> SINGLES;
+
+    static {
+        List<Set<NBTAction>> singles = new ArrayList<>();
+        for (NBTAction action : values()) {
+            singles.add(Collections.unmodifiableSet(EnumSet.of(action)));
+        }
+        SINGLES = NullHelper.notnullJ(Collections.unmodifiableList(singles), "Collections#unmodifiableList");
+    }
+
+    /**
+     * @return A shared, unmodifiable set containing all actions.
+     */
+    public static Set<NBTAction> all() {
+        return ALL;
+    }
+
+    /**
+     * @return A shared, unmodifiable set containing only this action.
+     */
+    public Set<NBTAction> asSet() {
+        return NullHelper.notnullJ(SINGLES.get(ordinal()), "List#get");
+    }
+
+    /**
+     * Checks if data written in the given phases is only synced to the client. Such data is read by the same game
+     * session, so it may use ids that are not stable across sessions (e.g. numeric registry ids).
+     */
+    public static boolean isClientOnly(Set<NBTAction> phases) {
+        return phases.contains(CLIENT) && !phases.contains(SAVE) && !phases.contains(ITEM);
+    }
+
+    /**
+     * Converts a set of actions into a bitmask with one bit per action ordinal.
+     */
+    public static int toMask(Set<NBTAction> phases) {
+        // The shared sets from all() and asSet() are what is passed nearly always, their masks are known
+        if (phases == ALL) {
+            return COMBINATIONS - 1;
+        }
+        for (int i = 0; i < SINGLES.size(); i++) {
+            if (phases == SINGLES.get(i)) {
+                return 1 << i;
+            }
+        }
+        int mask = 0;
+        for (NBTAction action : phases) {
+            mask |= 1 << action.ordinal();
+        }
+        return mask;
+    }
 }
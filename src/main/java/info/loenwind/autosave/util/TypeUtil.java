@@ -1,12 +1,18 @@
 package info.loenwind.autosave.util;
 
-import java.lang.invoke.MethodHandle;
-import java.lang.invoke.MethodHandles;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
 import java.util.function.Supplier;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
 public class TypeUtil {
 
     /**
@@ -37,23 +43,140 @@ public class TypeUtil {
     }
 
     public static <T> Supplier<T> defaultConstructorFactory(Class<T> clazz) {
-        MethodHandle handle;
         try {
-            handle = MethodHandles.lookup().unreflectConstructor(clazz.getConstructor());
+            return LambdaUtil.supplier(NullHelper.notnullJ(clazz.getConstructor(), "Class#getConstructor"));
         } catch (IllegalAccessException | NoSuchMethodException | SecurityException e) {
             throw new RuntimeException(e);
         }
-        return () -> {
-            try {
-                return (T) handle.invoke();
-            } catch (Throwable e) {
-                throw new RuntimeException(e);
-            }
-        };
     }
 
     public static Type getGenericType(Field field) {
         // TODO Would caching this be worthwhile? Seems to be cached in Field already.
         return NullHelper.notnullJ(field.getGenericType(), "Field#getGenericType");
     }
+
+    private static final Enum<?>[] NO_CONSTANTS = new Enum<?>[0];
+
+    private static final ClassValue<Enum<?>[]> ENUM_CONSTANTS = new ClassValue<Enum<?>[]>() {
+
+        @Override
+        protected Enum<?>[] computeValue(@Nullable Class<?> type) {
+            Object[] constants = NullHelper.notnullJ(type, "ClassValue#computeValue").getEnumConstants();
+            return constants instanceof Enum<?>[] ? (Enum<?>[]) constants : NO_CONSTANTS;
+        }
+    };
+
+    /**
+     * Cached version of {@link Class#getEnumConstants()}. Returns an empty array if the class is not an enum.
+     * <p>
+     * Note: The array is shared, it must not be modified.
+     */
+    public static Enum<?>[] getEnumConstants(Class<?> clazz) {
+        return NullHelper.notnullJ(ENUM_CONSTANTS.get(clazz), "ClassValue#get");
+    }
+
+    /**
+     * Returns the canonical instance of the given type. Two {@link ParameterizedType}s that are structurally equal
+     * (same raw type, owner type and type arguments) will always yield the same instance, no matter which
+     * implementation they came from. All other types are returned as-is.
+     * <p>
+     * This allows caches to be keyed by identity-stable types, and it lets structurally equal field types share
+     * the same resolved handlers. Canonical instances are only kept while they are in use elsewhere.
+     * <p>
+     * Note: This allocates for every parameterized type that is not canonical yet, so caches should be checked with
+     * the original type first.
+     */
+    public static Type canonicalize(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return type;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        if (parameterized instanceof CanonicalParameterizedType) {
+            return parameterized;
+        }
+        Type[] args = NullHelper.notnullJ(parameterized.getActualTypeArguments(),
+                "ParameterizedType#getActualTypeArguments");
+        for (int i = 0; i < args.length; i++) {
+            args[i] = canonicalize(NullHelper.notnullJ(args[i], "ParameterizedType#getActualTypeArguments"));
+        }
+        Type owner = parameterized.getOwnerType();
+        CanonicalParameterizedType key = new CanonicalParameterizedType(toClass(parameterized),
+                owner == null ? null : canonicalize(owner), args);
+        synchronized (CANONICAL_TYPES) {
+            WeakReference<Type> existing = CANONICAL_TYPES.get(key);
+            Type result = existing != null ? existing.get() : null;
+            if (result == null) {
+                CANONICAL_TYPES.put(key, new WeakReference<>(key));
+                result = key;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The canonical parameterized types. Both keys and values are weak, so the types (and the classes they consist
+     * of) can be collected once nothing else uses them.
+     */
+    private static final Map<Type, WeakReference<Type>> CANONICAL_TYPES = new WeakHashMap<>();
+
+    private static final class CanonicalParameterizedType implements ParameterizedType {
+
+        final @Nonnull Class<?> rawType;
+        final @Nullable Type ownerType;
+        final @Nonnull Type[] typeArguments;
+        private final int hash;
+
+        CanonicalParameterizedType(Class<?> rawType, @Nullable Type ownerType, Type[] typeArguments) {
+            this.rawType = rawType;
+            this.ownerType = ownerType;
+            this.typeArguments = typeArguments;
+            // Same as the JDK's implementation, so we can be compared to it
+            this.hash = Arrays.hashCode(typeArguments) ^ Objects.hashCode(ownerType) ^ rawType.hashCode();
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return NullHelper.notnullJ(typeArguments.clone(), "Object#clone");
+        }
+
+        @Override
+        public Type getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public @Nullable Type getOwnerType() {
+            return ownerType;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ParameterizedType)) {
+                return false;
+            }
+            ParameterizedType other = (ParameterizedType) obj;
+            return rawType.equals(other.getRawType()) && Objects.equals(ownerType, other.getOwnerType()) &&
+                    Arrays.equals(typeArguments, other.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(rawType.getName()).append('<');
+            for (int i = 0; i < typeArguments.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(typeArguments[i].getTypeName());
+            }
+            return NullHelper.notnullJ(sb.append('>').toString(), "StringBuilder#toString");
+        }
+    }
 }
@@ -41,6 +41,7 @@ public class ArrayTests {
 
         public @Store String[] strings;
         public @Store EnumFacing[] enums;
+        public @Store EnumFacing[] nullableEnums;
 
         void fill() {
             bytes = new byte[] { 1, -1, Byte.MAX_VALUE, Byte.MIN_VALUE };
@@ -66,6 +67,7 @@ public class ArrayTests {
 
             strings = new String[] { "Recursive", "handlers", "are", "cool" };
             enums = new EnumFacing[] { EnumFacing.UP, EnumFacing.DOWN, EnumFacing.NORTH };
+            nullableEnums = new EnumFacing[] { EnumFacing.UP, null, EnumFacing.DOWN, EnumFacing.NORTH };
         }
     }
 
@@ -153,6 +155,47 @@ public class ArrayTests {
         Assertions.assertArrayEquals(before.boxedDoubles, after.boxedDoubles);
     }
 
+    @Test
+    public void testLegacyArrays() {
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setIntArray("shorts", new int[] { 1, -1, Short.MAX_VALUE, Short.MIN_VALUE });
+        tag.setIntArray("chars", new int[] { 'a', '\n', Character.MAX_VALUE, Character.MIN_VALUE });
+        tag.setIntArray("longs", new int[] { 0, 0, -1, -1, Integer.MAX_VALUE, -1, Integer.MIN_VALUE, 0 });
+        Holder legacy = new Holder();
+        Reader.read(tag, legacy);
+        Assertions.assertArrayEquals(before.shorts, legacy.shorts);
+        Assertions.assertArrayEquals(before.chars, legacy.chars);
+        Assertions.assertArrayEquals(before.longs, legacy.longs);
+    }
+
+    @Test
+    public void testArraysAreReused() {
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        Holder target = new Holder();
+        target.shorts = new short[before.shorts.length];
+        target.boxedLongs = new Long[before.boxedLongs.length];
+        target.strings = new String[before.strings.length];
+        target.enums = new EnumFacing[1];
+        short[] shorts = target.shorts;
+        Long[] boxedLongs = target.boxedLongs;
+        String[] strings = target.strings;
+        Reader.read(tag, target);
+        Assertions.assertSame(shorts, target.shorts);
+        Assertions.assertSame(boxedLongs, target.boxedLongs);
+        Assertions.assertSame(strings, target.strings);
+        Assertions.assertArrayEquals(before.shorts, target.shorts);
+        Assertions.assertArrayEquals(before.boxedLongs, target.boxedLongs);
+        Assertions.assertArrayEquals(before.strings, target.strings);
+        Assertions.assertArrayEquals(before.enums, target.enums);
+    }
+
+    @Test
+    public void testEnumArray() {
+        Assertions.assertArrayEquals(before.enums, after.enums);
+        Assertions.assertArrayEquals(before.nullableEnums, after.nullableEnums);
+    }
+
     @Test
     public void testStringArray() {
         Assertions.assertArrayEquals(before.strings, after.strings);
@@ -1,17 +1,29 @@
 package info.loenwind.autosave.test;
 
+import java.lang.Character.UnicodeScript;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
 import net.minecraft.util.EnumFacing;
+import net.minecraftforge.common.util.Constants;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -24,37 +36,103 @@ import com.google.common.reflect.TypeToken;
 import info.loenwind.autosave.Reader;
 import info.loenwind.autosave.Registry;
 import info.loenwind.autosave.Writer;
+import info.loenwind.autosave.annotations.Storable;
 import info.loenwind.autosave.annotations.Store;
+import info.loenwind.autosave.engine.StorableEngine;
 import info.loenwind.autosave.handlers.IHandler;
 import info.loenwind.autosave.handlers.java.HandleEnum2EnumMap;
+import info.loenwind.autosave.util.LongMap;
+import info.loenwind.autosave.util.LongSet;
 
 public class CollectionTests {
 
+    @Storable
+    public static class Element {
+
+        public @Store int value;
+    }
+
     private static class Holder {
 
         public @Store List<String> strings;
         public @Store LinkedList<String> linkedListStrings;
+        public @Store List<String> sparseStrings;
+        public @Store List<Integer> ints;
+        public @Store List<Integer> sparseInts;
+        public @Store Set<Long> longs;
+        public @Store List<Double> doubles;
 
         public @Store Set<String> stringSet;
         public @Store EnumSet<EnumFacing> enumSet;
+        public @Store List<EnumFacing> enumList;
 
         public @Store Map<String, Integer> intMap;
+        public @Store LongSet longSet;
+        public @Store LongMap<String> longMap;
+        public @Store Map<Integer, String> intKeyMap;
+        public @Store Map<String, String> nullableMap;
+        public @Store LinkedHashMap<String, Integer> linkedMap;
+        public @Store TreeMap<String, Integer> treeMap;
+        public @Store ConcurrentHashMap<String, Integer> concurrentMap;
+        public @Store ArrayDeque<String> deque;
+        public @Store List<Element> elements;
+        public @Store Map<String, Element> elementMap;
         public @Store EnumMap<EnumFacing, String> facingMap;
         public @Store EnumMap<EnumFacing, EnumFacing> facing2facing;
+        public @Store EnumMap<UnicodeScript, UnicodeScript> script2script;
 
         public @Store Map<String, List<Map<Integer, EnumSet<EnumFacing>>>> insanity;
 
         void fill() {
             strings = Lists.newArrayList("foo", "bar");
             linkedListStrings = Lists.newLinkedList(strings);
+            sparseStrings = Lists.newArrayList(null, "foo", null, "bar");
+            ints = Lists.newArrayList(1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE);
+            sparseInts = Lists.newArrayList(1, null, 3);
+            longs = Sets.newHashSet(1L, Long.MAX_VALUE, Long.MIN_VALUE);
+            doubles = Lists.newArrayList(0.5D, -0D, Double.NaN);
 
             intMap = new HashMap<>();
             intMap.put("foo", 123);
             intMap.put("bar", 456);
 
+            longSet = new LongSet();
+            longMap = new LongMap<>();
+            for (long i = -50; i < 50; i++) {
+                longSet.add(i * 31);
+                longMap.put(i * 31, i % 7 == 0 ? null : "value" + i);
+            }
+
+            intKeyMap = new HashMap<>();
+            intKeyMap.put(1, "one");
+            intKeyMap.put(-7, null);
+
+            nullableMap = new HashMap<>();
+            nullableMap.put("foo", null);
+            nullableMap.put(null, "bar");
+
             stringSet = Sets.newHashSet("unique", "elements", "only");
 
+            linkedMap = new LinkedHashMap<>();
+            treeMap = new TreeMap<>();
+            for (int i = 0; i < 100; i++) {
+                linkedMap.put("entry" + (i * 7 % 100), i);
+                treeMap.put("entry" + (i * 7 % 100), i);
+            }
+            concurrentMap = new ConcurrentHashMap<>(intMap);
+            deque = new ArrayDeque<>(strings);
+
+            elements = new ArrayList<>();
+            elementMap = new HashMap<>();
+            for (int i = 0; i < 3; i++) {
+                Element element = new Element();
+                element.value = i;
+                elements.add(element);
+                elementMap.put("element" + i, element);
+            }
+
             enumSet = EnumSet.of(EnumFacing.UP, EnumFacing.WEST, EnumFacing.EAST);
+            enumList = Lists.newArrayList(EnumFacing.DOWN, null, EnumFacing.SOUTH, EnumFacing.DOWN);
 
             facingMap = new EnumMap<>(EnumFacing.class);
             facingMap.put(EnumFacing.UP, "up");
@@ -64,6 +142,12 @@ public class CollectionTests {
             facing2facing.put(EnumFacing.UP, EnumFacing.DOWN);
             facing2facing.put(EnumFacing.EAST, EnumFacing.WEST);
 
+            script2script = new EnumMap<>(UnicodeScript.class);
+            script2script.put(UnicodeScript.COMMON, UnicodeScript.LATIN);
+            script2script.put(UnicodeScript.LATIN, UnicodeScript.GREEK);
+            UnicodeScript[] scripts = UnicodeScript.values();
+            script2script.put(scripts[scripts.length - 1], scripts[scripts.length - 2]);
+
             Map<Integer, EnumSet<EnumFacing>> innerMap = new HashMap<>();
             innerMap.put(42, EnumSet.of(EnumFacing.NORTH, EnumFacing.SOUTH));
             insanity = new HashMap<>();
@@ -104,6 +188,37 @@ public class CollectionTests {
         Assertions.assertEquals(before.linkedListStrings, after.linkedListStrings);
     }
 
+    @Test
+    public void testSparseStringList() {
+        Assertions.assertEquals(before.sparseStrings, after.sparseStrings);
+    }
+
+    @Test
+    public void testLegacyStringList() {
+        NBTTagCompound list = new NBTTagCompound();
+        list.setInteger("size", 3);
+        list.setString("0", "foo");
+        list.setString("2", "bar");
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag("strings", list);
+        Holder legacy = new Holder();
+        Reader.read(tag, legacy);
+        Assertions.assertEquals(Lists.newArrayList("foo", null, "bar"), legacy.strings);
+    }
+
+    @Test
+    public void testPackedPrimitives() {
+        Assertions.assertEquals(before.ints, after.ints);
+        Assertions.assertEquals(before.sparseInts, after.sparseInts);
+        Assertions.assertEquals(before.longs, after.longs);
+        Assertions.assertEquals(before.doubles, after.doubles);
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        Assertions.assertEquals(Constants.NBT.TAG_INT_ARRAY, tag.getTagId("ints"));
+        Assertions.assertEquals(Constants.NBT.TAG_LIST, tag.getTagId("sparseInts"));
+    }
+
     @Test
     public void testStringSet() {
         Assertions.assertEquals(before.stringSet, after.stringSet);
@@ -114,21 +229,210 @@ public class CollectionTests {
         Assertions.assertEquals(before.enumSet, after.enumSet);
     }
 
+    @Test
+    public void testPackedEnums() {
+        Assertions.assertEquals(before.enumList, after.enumList);
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        Assertions.assertEquals(Constants.NBT.TAG_LONG, tag.getTagId("enumSet"));
+        Assertions.assertEquals(Constants.NBT.TAG_BYTE_ARRAY, tag.getTagId("enumList"));
+    }
+
+    @Test
+    public void testLegacyEnumSet() {
+        NBTTagCompound set = new NBTTagCompound();
+        set.setInteger("size", 2);
+        set.setInteger("0", EnumFacing.NORTH.ordinal());
+        set.setInteger("1", EnumFacing.EAST.ordinal());
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag("enumSet", set);
+        Holder legacy = new Holder();
+        Reader.read(tag, legacy);
+        Assertions.assertEquals(EnumSet.of(EnumFacing.NORTH, EnumFacing.EAST), legacy.enumSet);
+    }
+
     @Test
     public void testMap() {
         Assertions.assertEquals(before.intMap, after.intMap);
     }
 
+    @Test
+    public void testMapFormats() {
+        Assertions.assertEquals(before.intKeyMap, after.intKeyMap);
+        Assertions.assertEquals(before.nullableMap, after.nullableMap);
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        Assertions.assertEquals(123, tag.getCompoundTag("intMap").getInteger("foo"));
+        Assertions.assertEquals(Constants.NBT.TAG_INT_ARRAY, tag.getCompoundTag("intKeyMap").getTagId("k"));
+        Assertions.assertEquals(Constants.NBT.TAG_LIST, tag.getTagId("nullableMap"));
+    }
+
+    @Test
+    public void testLongCollections() {
+        Assertions.assertEquals(before.longSet, after.longSet);
+        Assertions.assertEquals(before.longMap, after.longMap);
+
+        // Compare against the JDK collections under random changes, including removals that shift probe sequences
+        Random random = new Random(42);
+        LongSet set = new LongSet(4);
+        LongMap<Long> map = new LongMap<>(4);
+        Set<Long> expectedSet = new HashSet<>();
+        Map<Long, Long> expectedMap = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(500) - 250;
+            if (random.nextBoolean()) {
+                Assertions.assertEquals(expectedSet.add(key), set.add(key));
+                Assertions.assertEquals(expectedMap.put(key, (long) i), map.put(key, (long) i));
+            } else {
+                Assertions.assertEquals(expectedSet.remove(key), set.remove(key));
+                Assertions.assertEquals(expectedMap.remove(key), map.remove(key));
+            }
+        }
+        Assertions.assertEquals(expectedSet.size(), set.size());
+        for (long key = -250; key < 250; key++) {
+            Assertions.assertEquals(expectedSet.contains(key), set.contains(key));
+            Assertions.assertEquals(expectedMap.get(key), map.get(key));
+        }
+        Set<Long> actualSet = new HashSet<>();
+        set.forEach(actualSet::add);
+        Assertions.assertEquals(expectedSet, actualSet);
+    }
+
+    @Test
+    public void testLegacyMap() {
+        NBTTagCompound entry = new NBTTagCompound();
+        entry.setString("key", "foo");
+        entry.setInteger("val", 42);
+        NBTTagList list = new NBTTagList();
+        list.appendTag(entry);
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag("intMap", list);
+        Holder legacy = new Holder();
+        Reader.read(tag, legacy);
+        Assertions.assertEquals(Collections.singletonMap("foo", 42), legacy.intMap);
+    }
+
+    @Test
+    public void testSizedMapsAndCollections() {
+        Assertions.assertEquals(Lists.newArrayList(before.linkedMap.entrySet()),
+                Lists.newArrayList(after.linkedMap.entrySet()));
+        Assertions.assertEquals(before.treeMap, after.treeMap);
+        Assertions.assertEquals(before.concurrentMap, after.concurrentMap);
+        Assertions.assertEquals(Lists.newArrayList(before.deque), Lists.newArrayList(after.deque));
+    }
+
+    @Test
+    public void testTreeMapKeepsComparator() {
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        Holder reversed = new Holder();
+        reversed.treeMap = new TreeMap<>(Comparator.reverseOrder());
+        TreeMap<String, Integer> map = reversed.treeMap;
+        Reader.read(tag, reversed);
+        Assertions.assertSame(map, reversed.treeMap);
+        Assertions.assertEquals(before.treeMap, reversed.treeMap);
+        Assertions.assertEquals(before.treeMap.lastKey(), reversed.treeMap.firstKey());
+    }
+
+    @Test
+    public void testReadInPlace() {
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        Holder target = new Holder();
+        target.elements = new ArrayList<>();
+        target.elementMap = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            target.elements.add(new Element());
+            target.elementMap.put("old" + i, new Element());
+        }
+        Element first = target.elements.get(0);
+        Element mapped = new Element();
+        target.elementMap.put("element1", mapped);
+        Reader.read(tag, target);
+
+        Assertions.assertEquals(3, target.elements.size());
+        Assertions.assertSame(first, target.elements.get(0));
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals(i, target.elements.get(i).value);
+        }
+        Assertions.assertEquals(before.elementMap.keySet(), target.elementMap.keySet());
+        Assertions.assertSame(mapped, target.elementMap.get("element1"));
+        Assertions.assertEquals(1, mapped.value);
+    }
+
     @Test
     public void testEnumMap() {
         Assertions.assertEquals(before.facingMap, after.facingMap);
     }
 
+    @Test
+    public void testLegacyEnumMap() {
+        NBTTagCompound written = new NBTTagCompound();
+        Writer.write(written, before);
+        Assertions.assertTrue(written.getCompoundTag("facingMap").hasKey("k", Constants.NBT.TAG_BYTE_ARRAY));
+
+        // Enum maps used to be stored with one tag per ordinal
+        NBTTagCompound legacy = new NBTTagCompound();
+        for (EnumFacing key : EnumFacing.values()) {
+            String val = before.facingMap.get(key);
+            String keystr = Integer.toString(key.ordinal());
+            if (val != null) {
+                legacy.setString(keystr, val);
+            } else {
+                legacy.setBoolean(keystr + StorableEngine.NULL_POSTFIX, true);
+            }
+        }
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag("facingMap", legacy);
+
+        Holder target = new Holder();
+        Reader.read(tag, target);
+        Assertions.assertEquals(before.facingMap, target.facingMap);
+    }
+
     @Test
     public void testEnum2EnumMap() {
         Assertions.assertEquals(before.facing2facing, after.facing2facing);
     }
 
+    @Test
+    public void testEnum2EnumMapMultipleWords() {
+        Assertions.assertEquals(before.script2script, after.script2script);
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        // Maps that fit into one long keep the old layout
+        Assertions.assertEquals(3, tag.getIntArray("facing2facing").length);
+        Assertions.assertTrue(tag.getIntArray("script2script").length > 3);
+    }
+
+    @Test
+    public void testLegacyWideEnum2EnumMap() {
+        // Maps too large for a single long used to be stored by HandleEnumMap
+        NBTTagCompound legacy = new NBTTagCompound();
+        for (UnicodeScript key : UnicodeScript.values()) {
+            UnicodeScript val = before.script2script.get(key);
+            String keystr = Integer.toString(key.ordinal());
+            if (val != null) {
+                legacy.setInteger(keystr, val.ordinal());
+            } else {
+                legacy.setBoolean(keystr + StorableEngine.NULL_POSTFIX, true);
+            }
+        }
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag("script2script", legacy);
+
+        Holder target = new Holder();
+        Reader.read(tag, target);
+        Assertions.assertEquals(before.script2script, target.script2script);
+
+        target.script2script.put(UnicodeScript.ARABIC, UnicodeScript.HAN);
+        Reader.read(tag, target);
+        Assertions.assertEquals(before.script2script, target.script2script);
+    }
+
     @Test
     public void testNestedGenerics() {
         Assertions.assertEquals(before.insanity, after.insanity);
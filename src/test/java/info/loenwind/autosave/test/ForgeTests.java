@@ -13,10 +13,13 @@ import net.minecraft.init.Enchantments;
 import net.minecraft.init.Items;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemBow;
+import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.fluids.Fluid;
 import net.minecraftforge.fluids.FluidRegistry;
 import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.items.ItemStackHandler;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -25,6 +28,7 @@ import org.junit.jupiter.api.Test;
 import info.loenwind.autosave.Reader;
 import info.loenwind.autosave.Writer;
 import info.loenwind.autosave.annotations.Store;
+import info.loenwind.autosave.util.NBTAction;
 
 public class ForgeTests {
 
@@ -58,6 +62,42 @@ public class ForgeTests {
         }
     }
 
+    /**
+     * An inventory with data of its own, and that hands out copies of its stacks.
+     */
+    public static class ModeHandler extends ItemStackHandler {
+
+        public int mode;
+
+        public ModeHandler() {
+            super(3);
+        }
+
+        @Override
+        public NBTTagCompound serializeNBT() {
+            NBTTagCompound nbt = super.serializeNBT();
+            nbt.setInteger("Mode", mode);
+            return nbt;
+        }
+
+        @Override
+        public void deserializeNBT(NBTTagCompound nbt) {
+            super.deserializeNBT(nbt);
+            mode = nbt.getInteger("Mode");
+        }
+
+        @Override
+        public ItemStack getStackInSlot(int slot) {
+            return super.getStackInSlot(slot).copy();
+        }
+    }
+
+    private static class InventoryHolder {
+
+        public @Store ItemStackHandler inventory;
+        public @Store ModeHandler modeInventory;
+    }
+
     private static final @Nonnull Holder before = new Holder();
     private static final @Nonnull Holder after = new Holder();
 
@@ -84,6 +124,21 @@ public class ForgeTests {
                 () -> Writer.write(new NBTTagCompound(), new Unregistered()));
     }
 
+    @Test
+    public void testClientIds() {
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(NBTAction.CLIENT, tag, before);
+        Assertions.assertEquals(Constants.NBT.TAG_INT, tag.getTagId("item"));
+        // The field type determines the registry
+        Assertions.assertFalse(tag.hasKey("item*R"));
+
+        Holder client = new Holder();
+        Reader.read(NBTAction.CLIENT, tag, client);
+        Assertions.assertSame(before.item, client.item);
+        Assertions.assertSame(before.chest, client.chest);
+        Assertions.assertSame(before.sharpness, client.sharpness);
+    }
+
     @Test
     public void testBlock() {
         Assertions.assertSame(before.block, after.block);
@@ -125,4 +180,28 @@ public class ForgeTests {
         Assertions.assertNotNull(after.stack);
         Assertions.assertTrue(before.stack.isFluidStackIdentical(after.stack));
     }
+
+    @Test
+    public void testItemStackHandler() {
+        InventoryHolder inventories = new InventoryHolder();
+        inventories.inventory = new ItemStackHandler(4);
+        inventories.inventory.setStackInSlot(1, new ItemStack(Items.APPLE, 3));
+        inventories.modeInventory = new ModeHandler();
+        inventories.modeInventory.setStackInSlot(2, new ItemStack(Items.BOW));
+        inventories.modeInventory.mode = 5;
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, inventories);
+        InventoryHolder target = new InventoryHolder();
+        Reader.read(tag, target);
+
+        Assertions.assertEquals(4, target.inventory.getSlots());
+        Assertions.assertTrue(target.inventory.getStackInSlot(0).isEmpty());
+        Assertions.assertSame(Items.APPLE, target.inventory.getStackInSlot(1).getItem());
+        Assertions.assertEquals(3, target.inventory.getStackInSlot(1).getCount());
+
+        Assertions.assertEquals(3, target.modeInventory.getSlots());
+        Assertions.assertSame(Items.BOW, target.modeInventory.getStackInSlot(2).getItem());
+        Assertions.assertEquals(5, target.modeInventory.mode);
+    }
 }
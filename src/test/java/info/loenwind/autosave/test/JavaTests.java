@@ -45,6 +45,12 @@ public class JavaTests {
         }
     }
 
+    private static class StaticHolder {
+
+        public static @Store String staticString;
+        public static @Store int staticInt;
+    }
+
     private static final @Nonnull Holder before = new Holder();
     private static final @Nonnull Holder after = new Holder();
 
@@ -111,4 +117,20 @@ public class JavaTests {
         Assertions.assertNotNull(after.facing);
         Assertions.assertEquals(before.facing, after.facing);
     }
+
+    @Test
+    public void testStaticFields() {
+        StaticHolder.staticString = "static";
+        StaticHolder.staticInt = 17;
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, new StaticHolder());
+        Assertions.assertEquals("static", tag.getString("staticString"));
+        Assertions.assertEquals(17, tag.getInteger("staticInt"));
+
+        StaticHolder.staticString = null;
+        StaticHolder.staticInt = 0;
+        Reader.read(tag, new StaticHolder());
+        Assertions.assertEquals("static", StaticHolder.staticString);
+        Assertions.assertEquals(17, StaticHolder.staticInt);
+    }
 }
@@ -1,11 +1,16 @@
 package info.loenwind.autosave.test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 
 import net.minecraft.block.BlockColored;
+import net.minecraft.block.BlockStairs;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
 import net.minecraft.init.Bootstrap;
@@ -13,8 +18,10 @@ import net.minecraft.init.Items;
 import net.minecraft.item.EnumDyeColor;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.NonNullList;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.common.util.Constants;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -23,6 +30,9 @@ import org.junit.jupiter.api.Test;
 import info.loenwind.autosave.Reader;
 import info.loenwind.autosave.Writer;
 import info.loenwind.autosave.annotations.Store;
+import info.loenwind.autosave.handlers.minecraft.HandleBlockPosDeltas;
+import info.loenwind.autosave.util.LongSet;
+import info.loenwind.autosave.util.NBTAction;
 
 public class MinecraftTests {
 
@@ -36,6 +46,13 @@ public class MinecraftTests {
         // Verify arrays/collections work with MC objects
         public @Store ItemStack[] stackArray;
         public @Store List<ItemStack> stackList;
+        public @Store NonNullList<ItemStack> inventory;
+        public @Store NonNullList<ItemStack> drawer;
+        public @Store List<BlockPos> posList;
+        public @Store BlockPos[] posArray;
+        public @Store(handler = HandleBlockPosDeltas.class) List<BlockPos> posDeltas;
+        public @Store IBlockState[] stateArray;
+        public @Store Map<BlockPos, IBlockState> stateMap;
 
         void fill() {
             pos = new BlockPos(867, 5, 309);
@@ -45,7 +62,32 @@ public class MinecraftTests {
 
             stackArray = new ItemStack[] { new ItemStack(Items.BEEF), new ItemStack(Items.FISH, 1, 2),
                     new ItemStack(Items.MUTTON) };
-            stackList = Arrays.asList(stackArray);
+            stackList = new ArrayList<>(Arrays.asList(stackArray));
+            stackList.add(ItemStack.EMPTY);
+            stackList.add(new ItemStack(Items.BEEF, 5));
+            inventory = NonNullList.withSize(27, ItemStack.EMPTY);
+            inventory.set(4, new ItemStack(Items.DIAMOND, 3));
+            drawer = NonNullList.withSize(16, ItemStack.EMPTY);
+            for (int i = 0; i < 12; i++) {
+                drawer.set(i, new ItemStack(Items.FISH, i + 1, i % 2));
+            }
+
+            posList = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                posList.add(pos.add(i, -i, i * 100));
+            }
+            posArray = posList.toArray(new BlockPos[0]);
+            posDeltas = new ArrayList<>(posList);
+            posDeltas.add(new BlockPos(-30000000, 255, 30000000));
+
+            stateArray = new IBlockState[64];
+            stateMap = new HashMap<>();
+            for (int i = 0; i < stateArray.length; i++) {
+                stateArray[i] = Blocks.WOOL.getDefaultState().withProperty(BlockColored.COLOR,
+                        EnumDyeColor.byMetadata(i % 5));
+                stateMap.put(pos.up(i), stateArray[i]);
+            }
+            stateArray[7] = null;
         }
     }
 
@@ -69,11 +111,71 @@ public class MinecraftTests {
         Assertions.assertEquals(before.pos, after.pos);
     }
 
+    @Test
+    public void testBlockPosCollections() {
+        Assertions.assertEquals(before.posList, after.posList);
+        Assertions.assertArrayEquals(before.posArray, after.posArray);
+        Assertions.assertEquals(before.posDeltas, after.posDeltas);
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        Assertions.assertEquals(Constants.NBT.TAG_LONG_ARRAY, tag.getTagId("posList"));
+        Assertions.assertEquals(Constants.NBT.TAG_LONG_ARRAY, tag.getTagId("posArray"));
+        Assertions.assertEquals(Constants.NBT.TAG_BYTE_ARRAY, tag.getTagId("posDeltas"));
+    }
+
+    @Test
+    public void testBlockPosLongSet() {
+        LongSet set = LongSet.ofBlockPos(before.posList);
+        Assertions.assertEquals(new HashSet<>(before.posList), set.asBlockPosSet());
+        Assertions.assertTrue(set.asBlockPosSet().remove(before.pos));
+        Assertions.assertFalse(set.contains(before.pos.toLong()));
+    }
+
     @Test
     public void testBlockState() {
         Assertions.assertSame(before.state, after.state);
     }
 
+    @Test
+    public void testBlockStateClientId() {
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(NBTAction.CLIENT, tag, before);
+        Assertions.assertEquals(Constants.NBT.TAG_INT, tag.getTagId("state"));
+
+        Holder client = new Holder();
+        Reader.read(NBTAction.CLIENT, tag, client);
+        Assertions.assertSame(before.state, client.state);
+    }
+
+    @Test
+    public void testBlockStateClientName() {
+        // The shape of stairs is not kept in their metadata
+        Holder stairs = new Holder();
+        stairs.state = Blocks.OAK_STAIRS.getDefaultState().withProperty(BlockStairs.SHAPE,
+                BlockStairs.EnumShape.OUTER_LEFT);
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(NBTAction.CLIENT, tag, stairs);
+        Assertions.assertEquals(Constants.NBT.TAG_COMPOUND, tag.getTagId("state"));
+
+        Holder client = new Holder();
+        Reader.read(NBTAction.CLIENT, tag, client);
+        Assertions.assertSame(stairs.state, client.state);
+    }
+
+    @Test
+    public void testBlockStatePalette() {
+        Assertions.assertArrayEquals(before.stateArray, after.stateArray);
+        Assertions.assertEquals(before.stateMap, after.stateMap);
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        Assertions.assertEquals(5, tag.getCompoundTag("stateArray").getTagList("Palette", Constants.NBT.TAG_COMPOUND)
+                .tagCount());
+        Assertions.assertEquals(5, tag.getCompoundTag("stateMap").getCompoundTag("v")
+                .getTagList("Palette", Constants.NBT.TAG_COMPOUND).tagCount());
+    }
+
     @Test
     public void testResourceLocation() {
         Assertions.assertEquals(before.resloc, after.resloc);
@@ -97,11 +199,58 @@ public class MinecraftTests {
         }
     }
 
+    @Test
+    public void testInventory() {
+        Assertions.assertEquals(before.inventory.size(), after.inventory.size());
+        for (int i = 0; i < before.inventory.size(); i++) {
+            Assertions.assertTrue(compareStacks(before.inventory.get(i), after.inventory.get(i)));
+        }
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        // Only the non-empty slots are written
+        Assertions.assertEquals(1, tag.getCompoundTag("inventory").getTagList("Items", Constants.NBT.TAG_COMPOUND)
+                .tagCount());
+        Assertions.assertEquals(3, tag.getCompoundTag("stackArray").getInteger("Size"));
+    }
+
     @Test
     public void testItemStackList() {
         Assertions.assertEquals(before.stackList.size(), after.stackList.size());
         for (int i = 0; i < before.stackList.size(); i++) {
             Assertions.assertTrue(compareStacks(before.stackList.get(i), after.stackList.get(i)));
+            Assertions.assertEquals(before.stackList.get(i).getCount(), after.stackList.get(i).getCount());
         }
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        Assertions.assertEquals(3,
+                tag.getCompoundTag("stackList").getTagList("Palette", Constants.NBT.TAG_COMPOUND).tagCount());
+    }
+
+    @Test
+    public void testItemStackPalette() {
+        for (int i = 0; i < before.drawer.size(); i++) {
+            Assertions.assertTrue(compareStacks(before.drawer.get(i), after.drawer.get(i)));
+            Assertions.assertEquals(before.drawer.get(i).getCount(), after.drawer.get(i).getCount());
+        }
+        // Slots with the same stack do not share it after reading
+        Holder same = new Holder();
+        same.drawer = NonNullList.withSize(2, ItemStack.EMPTY);
+        same.drawer.set(0, new ItemStack(Items.FISH, 4));
+        same.drawer.set(1, new ItemStack(Items.FISH, 4));
+        NBTTagCompound sameTag = new NBTTagCompound();
+        Writer.write(sameTag, same);
+        Holder sameTarget = new Holder();
+        Reader.read(sameTag, sameTarget);
+        Assertions.assertTrue(compareStacks(same.drawer.get(0), sameTarget.drawer.get(1)));
+        Assertions.assertNotSame(sameTarget.drawer.get(0), sameTarget.drawer.get(1));
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Writer.write(tag, before);
+        NBTTagCompound drawer = tag.getCompoundTag("drawer");
+        Assertions.assertEquals(2, drawer.getTagList("Palette", Constants.NBT.TAG_COMPOUND).tagCount());
+        Assertions.assertEquals(12 * 3, drawer.getIntArray("Slots").length);
+        Assertions.assertFalse(drawer.hasKey("Items"));
     }
 }
@@ -0,0 +1,168 @@
+package info.loenwind.autosave.test;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.EnumFacing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.reflect.TypeToken;
+
+import info.loenwind.autosave.Registry;
+import info.loenwind.autosave.handlers.IHandler;
+import info.loenwind.autosave.util.NBTAction;
+import info.loenwind.autosave.util.TypeUtil;
+
+@SuppressWarnings("rawtypes")
+public class RegistryTests {
+
+    private static class Unknown {}
+
+    private static class HandleUnknown implements IHandler<Unknown> {
+
+        @Override
+        public Class<?> getRootType() {
+            return Unknown.class;
+        }
+
+        @Override
+        public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                             Unknown object) {
+            nbt.setBoolean(name, true);
+            return true;
+        }
+
+        @Override
+        public @Nullable Unknown read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type,
+                                      String name, @Nullable Unknown object) {
+            return nbt.hasKey(name) ? new Unknown() : object;
+        }
+    }
+
+    private static class HandleCharSequences implements IHandler<CharSequence[]> {
+
+        @Override
+        public Class<?> getRootType() {
+            return CharSequence[].class;
+        }
+
+        @Override
+        public boolean store(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type, String name,
+                             CharSequence[] object) {
+            return false;
+        }
+
+        @Override
+        public @Nullable CharSequence[] read(Registry registry, Set<NBTAction> phase, NBTTagCompound nbt, Type type,
+                                             String name, @Nullable CharSequence[] object) {
+            return object;
+        }
+    }
+
+    @Test
+    public void testCachedHandlersAreInvalidatedByParent() throws InstantiationException, IllegalAccessException {
+        Registry parent = new Registry();
+        Registry child = new Registry(parent);
+
+        Assertions.assertTrue(child.findHandlers(Unknown.class).isEmpty());
+        Assertions.assertTrue(child.findHandlers(Unknown.class).isEmpty());
+
+        HandleUnknown handler = new HandleUnknown();
+        parent.register(handler);
+        List<IHandler> handlers = child.findHandlers(Unknown.class);
+        Assertions.assertEquals(1, handlers.size());
+        Assertions.assertSame(handler, handlers.get(0));
+        Assertions.assertSame(handlers, child.findHandlers(Unknown.class));
+
+        HandleUnknown priority = new HandleUnknown();
+        child.registerPriority(priority);
+        handlers = child.findHandlers(Unknown.class);
+        Assertions.assertEquals(2, handlers.size());
+        Assertions.assertSame(priority, handlers.get(0));
+        Assertions.assertSame(handler, handlers.get(1));
+    }
+
+    @Test
+    public void testBakedRegistryFindsSameHandlers() throws InstantiationException, IllegalAccessException {
+        Registry parent = new Registry();
+        Registry registry = new Registry(parent);
+        registry.register(new HandleUnknown());
+        registry.register(new HandleCharSequences());
+        // Lookups are cached, so compare with a registry that is never baked
+        Registry unbaked = new Registry(parent);
+        unbaked.register(new HandleUnknown());
+        unbaked.register(new HandleCharSequences());
+        Type[] types = { int.class, Integer.class, String.class, int[].class, Unknown.class, EnumFacing.class,
+                String[].class, String[][].class, Object[].class,
+                new TypeToken<List<String>>() {}.getType(), new TypeToken<Map<String, Integer>>() {}.getType(),
+                new TypeToken<EnumMap<EnumFacing, EnumFacing>>() {}.getType(), Set.class, Object.class };
+        List<List<Class<?>>> before = new ArrayList<>();
+        for (Type type : types) {
+            before.add(handlerClasses(unbaked.findHandlers(type)));
+        }
+        // Arrays are covariant, a handler for arrays of a supertype is found for arrays of its subtypes
+        Assertions.assertTrue(before.get(6).contains(HandleCharSequences.class));
+
+        registry.bake();
+        Assertions.assertTrue(registry.isFrozen());
+        // Parents are not frozen, other mods can still register with them
+        Assertions.assertFalse(parent.isFrozen());
+        Assertions.assertFalse(Registry.GLOBAL_REGISTRY.isFrozen());
+        for (int i = 0; i < types.length; i++) {
+            Assertions.assertEquals(before.get(i), handlerClasses(registry.findHandlers(types[i])));
+        }
+        Assertions.assertThrows(IllegalStateException.class, () -> registry.register(new HandleUnknown()));
+
+        // Handlers registered with a parent afterwards are found
+        HandleUnknown parentHandler = new HandleUnknown();
+        parent.registerPriority(parentHandler);
+        List<IHandler> unknownHandlers = registry.findHandlers(Unknown.class);
+        Assertions.assertEquals(2, unknownHandlers.size());
+        Assertions.assertSame(parentHandler, unknownHandlers.get(1));
+
+        // Unbaked children still work on top of a baked parent
+        Registry child = new Registry(registry);
+        HandleUnknown handler = new HandleUnknown();
+        child.register(handler);
+        List<IHandler> handlers = child.findHandlers(Unknown.class);
+        Assertions.assertEquals(3, handlers.size());
+        Assertions.assertSame(handler, handlers.get(0));
+    }
+
+    private static class Holder {
+
+        public Map<String, List<EnumFacing>> map;
+    }
+
+    @Test
+    public void testStructurallyEqualTypesShareHandlers() throws InstantiationException, IllegalAccessException,
+                                                          NoSuchFieldException {
+        Type fieldType = Holder.class.getField("map").getGenericType();
+        Type tokenType = new TypeToken<Map<String, List<EnumFacing>>>() {}.getType();
+        // Canonical types only live as long as they are referenced
+        Type canonical = TypeUtil.canonicalize(fieldType);
+        Assertions.assertSame(canonical, TypeUtil.canonicalize(tokenType));
+        Assertions.assertEquals(fieldType, canonical);
+
+        Registry registry = new Registry();
+        Assertions.assertSame(registry.findHandlers(fieldType), registry.findHandlers(tokenType));
+        Assertions.assertSame(canonical, TypeUtil.canonicalize(fieldType));
+    }
+
+    private static List<Class<?>> handlerClasses(List<IHandler> handlers) {
+        List<Class<?>> result = new ArrayList<>();
+        for (IHandler handler : handlers) {
+            result.add(handler.getClass());
+        }
+        return result;
+    }
+}